@@ -0,0 +1,206 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pivotal.github;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.DateTime;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.pivotal.jira.JiraComment;
+import io.pivotal.jira.JiraCommentPage;
+import io.pivotal.jira.JiraComponent;
+import io.pivotal.jira.JiraFixVersion;
+import io.pivotal.jira.JiraIssue;
+import io.pivotal.jira.JiraIssueType;
+import io.pivotal.jira.JiraResolution;
+import io.pivotal.jira.JiraStatus;
+import io.pivotal.jira.JiraUser;
+import io.pivotal.util.Corpus;
+import io.pivotal.util.MarkdownEngine;
+import io.pivotal.util.MarkupManager;
+import io.pivotal.util.TextileEngine;
+
+/**
+ * Measures building the payload of a single import request from a
+ * {@link JiraIssue} and writing it the way {@link GithubClient} sends it.
+ *
+ * @author Rob Winch
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GithubClientBenchmarks {
+	static final String JIRA_BASE_URL = "https://jira.spring.io";
+
+	static final String[] COMMENTS = { Corpus.SHORT_COMMENT, Corpus.LONG_DISCUSSION, Corpus.CONFIGURATION, Corpus.SHORT_COMMENT };
+
+	/**
+	 * Issues created before April 2009 are converted with the textile engine.
+	 */
+	@Param({ "textile", "markdown" })
+	String markup;
+
+	@Param({ "4", "20" })
+	int commentCount;
+
+	/**
+	 * True if the bodies of the import requests are gzipped.
+	 */
+	@Param({ "false" })
+	boolean compressRequests;
+
+	GithubClient github;
+
+	Map<String, GithubMilestone> nameToMilestone;
+
+	JiraFixVersion fixVersion;
+
+	JiraIssue issue;
+
+	GithubIssue ghIssue;
+
+	List<GithubComment> comments;
+
+	@Setup
+	public void setup() {
+		MarkdownEngine markdown = new MarkdownEngine();
+		markdown.setJiraBaseUrl(JIRA_BASE_URL);
+		TextileEngine textile = new TextileEngine();
+		textile.setJiraBaseUrl(JIRA_BASE_URL);
+
+		GithubConfig config = new GithubConfig();
+		config.setCompressRequests(compressRequests);
+
+		github = new GithubClient();
+		github.setConfig(config);
+		github.setMarkup(new MarkupManager(markdown, textile));
+		github.setJiraUsernameToGithubUsername(Collections.singletonMap("rwinch", "rwinch"));
+
+		fixVersion = new JiraFixVersion("4.0.1");
+		GithubMilestone milestone = new GithubMilestone();
+		milestone.setNumber(42);
+		milestone.setTitle(fixVersion.getName());
+		nameToMilestone = Collections.singletonMap(fixVersion.getName(), milestone);
+
+		DateTime created = "textile".equals(markup) ? DateTime.parse("2008-06-02T10:15:30Z") : DateTime.parse("2015-06-02T10:15:30Z");
+		issue = createIssue(created);
+
+		ghIssue = github.createGithubIssue(nameToMilestone, issue, fixVersion);
+		comments = github.createComments(issue);
+	}
+
+	@Benchmark
+	public GithubIssue createGithubIssue() {
+		return github.createGithubIssue(nameToMilestone, issue, fixVersion);
+	}
+
+	@Benchmark
+	public List<GithubComment> createComments() {
+		return github.createComments(issue);
+	}
+
+	@Benchmark
+	public byte[] writeImportIssue() throws IOException {
+		ByteArrayOutputStream body = new ByteArrayOutputStream(8192);
+		github.writeImportIssue(body, ghIssue, comments);
+		return body.toByteArray();
+	}
+
+	/**
+	 * Converts the issue and writes the body of its import, which is what the
+	 * conversion threads do for every issue.
+	 */
+	@Benchmark
+	public byte[] prepareIssue() throws IOException {
+		return github.prepareIssue(nameToMilestone, issue).getBody();
+	}
+
+	private JiraIssue createIssue(DateTime created) {
+		JiraUser reporter = user("Joe Grandja", "jgrandja");
+		JiraUser assignee = user("Rob Winch", "rwinch");
+
+		List<JiraComment> comments = new ArrayList<>();
+		for(int i = 0; i < commentCount; i++) {
+			JiraComment comment = new JiraComment();
+			comment.setAuthor(i % 2 == 0 ? assignee : reporter);
+			comment.setCreated(created.plusHours(i + 1));
+			comment.setBody(Corpus.read(COMMENTS[i % COMMENTS.length]));
+			comments.add(comment);
+		}
+		JiraCommentPage commentPage = new JiraCommentPage();
+		commentPage.setComments(comments);
+
+		JiraComponent component = new JiraComponent();
+		component.setName("Core");
+		JiraStatus status = new JiraStatus();
+		status.setName("Closed");
+		JiraIssueType type = new JiraIssueType();
+		type.setName("Bug");
+		JiraResolution resolution = new JiraResolution();
+		resolution.setName("Fixed");
+
+		JiraIssue.Fields fields = new JiraIssue.Fields();
+		fields.setSummary("Cannot create a session after the response has been committed");
+		fields.setDescription(Corpus.read(Corpus.STACK_TRACE));
+		fields.setCreated(created);
+		fields.setUpdated(created.plusDays(3));
+		fields.setReporter(reporter);
+		fields.setAssignee(assignee);
+		fields.setComment(commentPage);
+		fields.setComponents(Arrays.asList(component));
+		fields.setFixVersions(Arrays.asList(fixVersion));
+		fields.setStatus(status);
+		fields.setIssuetype(type);
+		fields.setResolution(resolution);
+		fields.setIssuelinks(Collections.emptyList());
+
+		JiraIssue issue = new JiraIssue();
+		issue.setKey("SEC-2917");
+		issue.setSelf(JIRA_BASE_URL + "/rest/api/2/issue/53210");
+		issue.setFields(fields);
+		return issue;
+	}
+
+	private static JiraUser user(String displayName, String key) {
+		JiraUser user = new JiraUser();
+		user.setDisplayName(displayName);
+		user.setKey(key);
+		user.setSelf(JIRA_BASE_URL + "/rest/api/2/user?username=" + key);
+		return user;
+	}
+}
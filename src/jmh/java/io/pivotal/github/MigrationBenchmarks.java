@@ -0,0 +1,201 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pivotal.github;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.pivotal.jira.JiraConfig;
+import io.pivotal.jira.JiraProject;
+import io.pivotal.jira.SyntheticJiraData;
+import io.pivotal.util.HttpConfig;
+import io.pivotal.util.MarkdownEngine;
+import io.pivotal.util.MarkupManager;
+import io.pivotal.util.SharedHttpClient;
+import io.pivotal.util.TextileEngine;
+
+/**
+ * Measures migrating a {@link SyntheticJiraData} project end to end with
+ * {@link GithubClient#createIssues(java.util.stream.Stream, long)} against a
+ * {@link FakeGithubServer}. Each invocation is a complete migration into an
+ * empty repository.
+ *
+ * @author Rob Winch
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class MigrationBenchmarks {
+	@Param({ "2000" })
+	int issueCount;
+
+	@Param({ "1", "8" })
+	int importThreads;
+
+	/**
+	 * The simulated round trip to GitHub.
+	 */
+	@Param({ "20" })
+	long latencyMillis;
+
+	/**
+	 * How long GitHub takes to process each import.
+	 */
+	@Param({ "500" })
+	long importDelayMillis;
+
+	/**
+	 * Every n-th request is rejected with an abuse rate limit (0 disables).
+	 */
+	@Param({ "0" })
+	int abuseEvery;
+
+	/**
+	 * The pacing of the requests (0 disables), see
+	 * {@link GithubConfig#getRequestsPerSecond()}.
+	 */
+	@Param({ "0" })
+	double requestsPerSecond;
+
+	/**
+	 * The pacing of the requests that create or change content (0 disables), see
+	 * {@link GithubConfig#getWritesPerSecond()}.
+	 */
+	@Param({ "0" })
+	double writesPerSecond;
+
+	/**
+	 * The requests each token may send per minute (0 is unlimited). GitHub
+	 * allows 5000 per hour, so scale this down with the issueCount.
+	 */
+	@Param({ "0" })
+	int rateLimitPerMinute;
+
+	/**
+	 * The number of access tokens the requests are spread over.
+	 */
+	@Param({ "1" })
+	int tokenCount;
+
+	/**
+	 * See {@link GithubConfig#isPredictIssueNumbers()}.
+	 */
+	@Param({ "false" })
+	boolean predictIssueNumbers;
+
+	/**
+	 * Every n-th issue number is taken by someone else (0 disables), which makes
+	 * the predicted issue numbers wrong.
+	 */
+	@Param({ "0" })
+	int foreignIssueEvery;
+
+	FakeGithubServer server;
+
+	SyntheticJiraData jira;
+
+	GithubClient github;
+
+	SharedHttpClient http;
+
+	@Setup(Level.Trial)
+	public void startServer() throws IOException {
+		server = new FakeGithubServer(0, 64).start();
+		server.setLatencyMillis(latencyMillis);
+		server.setImportDelayMillis(importDelayMillis);
+		server.setForeignIssueEvery(foreignIssueEvery);
+		server.setRateLimit(rateLimitPerMinute > 0 ? rateLimitPerMinute : Integer.MAX_VALUE, TimeUnit.MINUTES.toMillis(1));
+
+		jira = new SyntheticJiraData(0, issueCount);
+
+		GithubConfig config = new GithubConfig();
+		config.setApiUrl(server.getApiUrl());
+		config.setRepositorySlug("jira-to-gh-issues/migration-benchmark");
+		config.setAccessToken("benchmark");
+		for(int i = 1; i < tokenCount; i++) {
+			config.getAdditionalAccessTokens().add("benchmark-" + i);
+		}
+		config.setImportThreads(importThreads);
+		config.setRequestsPerSecond(requestsPerSecond);
+		config.setWritesPerSecond(writesPerSecond);
+		config.setPredictIssueNumbers(predictIssueNumbers);
+
+		JiraConfig jiraConfig = new JiraConfig();
+		jiraConfig.setBaseUrl("https://jira.example.com");
+
+		MarkdownEngine markdown = new MarkdownEngine();
+		markdown.setJiraBaseUrl(jiraConfig.getBaseUrl());
+		TextileEngine textile = new TextileEngine();
+		textile.setJiraBaseUrl(jiraConfig.getBaseUrl());
+
+		github = new GithubClient();
+		github.setConfig(config);
+		github.setJiraConfig(jiraConfig);
+		github.setMarkup(new MarkupManager(markdown, textile));
+		github.setJiraUsernameToGithubUsername(Collections.singletonMap("rwinch", "rwinch"));
+		http = new SharedHttpClient(new HttpConfig());
+		github.setSharedHttpClient(http);
+		github.configureTokens();
+	}
+
+	@Setup(Level.Invocation)
+	public void prepareRepository() throws IOException, InterruptedException {
+		// only the migration itself is measured, so the repository is prepared without abuse rate limits
+		server.setAbuseEvery(0);
+		server.reset();
+		github.setJournal(new MigrationJournal());
+		JiraProject project = jira.getProject();
+		github.createMilestones(project.getVersions());
+		github.createComponentLabels(project.getComponents());
+		github.createIssueTypeLabels(project.getIssueTypes());
+		server.setAbuseEvery(abuseEvery);
+	}
+
+	@TearDown(Level.Trial)
+	public void stopServer() throws IOException {
+		System.out.println("Fake GitHub handled " + server.getRequestCount() + " requests and rejected " + server.getRejectedCount());
+		for(GithubTokenPool.Token token : github.getTokens().getTokens()) {
+			System.out.println("Waited " + token.getRateGovernor().getBudget().getSleptMillis() + "ms for the rate limits");
+		}
+		server.close();
+		http.close();
+	}
+
+	@Benchmark
+	public int migrate() throws Exception {
+		github.createIssues(jira.issues(), issueCount);
+		return server.getIssues().size();
+	}
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pivotal.jira;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link JiraFixVersion#sort(List)}. Most issues have one or two fix
+ * versions, but the project versions are sorted as a whole when milestones are
+ * created.
+ *
+ * @author Rob Winch
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JiraFixVersionBenchmarks {
+	@Param({ "2", "120" })
+	int size;
+
+	List<JiraFixVersion> versions;
+
+	@Setup
+	public void setup() {
+		List<JiraFixVersion> all = new ArrayList<>();
+		for(int major = 1; all.size() < size; major++) {
+			for(int minor = 0; minor < 3; minor++) {
+				all.add(new JiraFixVersion(major + "." + minor + " M1"));
+				all.add(new JiraFixVersion(major + "." + minor + " RC1"));
+				for(int patch = 0; patch < 8; patch++) {
+					all.add(new JiraFixVersion(major + "." + minor + "." + patch));
+				}
+			}
+		}
+		Collections.shuffle(all, new Random(0));
+		versions = new ArrayList<>(all.subList(0, size));
+	}
+
+	@Benchmark
+	public List<JiraFixVersion> sort() {
+		return JiraFixVersion.sort(versions);
+	}
+}
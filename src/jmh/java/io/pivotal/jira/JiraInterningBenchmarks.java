@@ -0,0 +1,117 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pivotal.jira;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Reads every issue of a synthetic snapshot and keeps them, like the
+ * migration does to create the backports and links, with and without the
+ * {@link JiraInterningModule}. After each iteration the heap retained by the
+ * issues is printed, so the heap saved is the difference between the two.
+ *
+ * @author Rob Winch
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class JiraInterningBenchmarks {
+	@Param({ "50000" })
+	int issueCount;
+
+	@Param({ "false", "true" })
+	boolean interning;
+
+	Path snapshot;
+
+	List<JiraIssue> issues;
+
+	@Setup(Level.Trial)
+	public void writeSnapshot() throws IOException {
+		snapshot = Files.createTempFile("jira-interning", ".ndjson.gz");
+		new SyntheticJiraData(0, issueCount).writeSnapshot(snapshot);
+	}
+
+	@TearDown(Level.Trial)
+	public void deleteSnapshot() throws IOException {
+		Files.deleteIfExists(snapshot);
+	}
+
+	@TearDown(Level.Iteration)
+	public void printRetainedHeap() {
+		long retained = usedHeap();
+		issues = null;
+		retained -= usedHeap();
+		System.out.println();
+		System.out.printf("%d issues retained %.1f MB (interning=%s)%n", issueCount, retained / (1024.0 * 1024.0), interning);
+	}
+
+	@Benchmark
+	public List<JiraIssue> readIssues() throws IOException {
+		ObjectMapper mapper = interning ?
+				Jackson2ObjectMapperBuilder.json().modulesToInstall(new JiraInterningModule()).build() : Jackson2ObjectMapperBuilder.json().build();
+		List<JiraIssue> read = new ArrayList<>(issueCount);
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(Files.newInputStream(snapshot)), StandardCharsets.UTF_8))) {
+			// the first line is the header
+			reader.readLine();
+			for(String line = reader.readLine(); line != null; line = reader.readLine()) {
+				read.add(mapper.readValue(line, JiraIssue.class));
+			}
+		}
+		issues = read;
+		return read;
+	}
+
+	private static long usedHeap() {
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		for(int i = 0; i < 3; i++) {
+			memory.gc();
+		}
+		return memory.getHeapMemoryUsage().getUsed();
+	}
+}
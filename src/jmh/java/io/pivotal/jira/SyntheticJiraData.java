@@ -0,0 +1,270 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pivotal.jira;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+
+import io.pivotal.jira.IssueLink.RelatedIssue;
+import io.pivotal.jira.IssueLink.RelatedType;
+import io.pivotal.util.Corpus;
+
+/**
+ * Generates a JIRA project with any number of issues that look like a real
+ * project: the issues span the switch from textile to markdown, have a varying
+ * number of comments, fix versions (so some are backported) and links to
+ * other issues. The same seed always generates the same data, and each issue
+ * is generated on demand so large projects are not held in memory.
+ *
+ * @author Rob Winch
+ *
+ */
+public class SyntheticJiraData {
+	static final String PROJECT_KEY = "SYN";
+
+	static final String[] COMMENTS = { Corpus.SHORT_COMMENT, Corpus.SHORT_COMMENT, Corpus.LONG_DISCUSSION, Corpus.CONFIGURATION, Corpus.STACK_TRACE };
+
+	static final String[] DESCRIPTIONS = { Corpus.STACK_TRACE, Corpus.CONFIGURATION, Corpus.SHORT_COMMENT };
+
+	static final DateTime FIRST_CREATED = new DateTime(2005, 1, 1, 0, 0, DateTimeZone.UTC);
+
+	static final DateTime LAST_CREATED = new DateTime(2016, 1, 1, 0, 0, DateTimeZone.UTC);
+
+	private final long seed;
+
+	private final int issueCount;
+
+	private final List<String> descriptions = Arrays.stream(DESCRIPTIONS).map(Corpus::read).collect(Collectors.toList());
+
+	private final List<String> comments = Arrays.stream(COMMENTS).map(Corpus::read).collect(Collectors.toList());
+
+	private final List<JiraUser> users = Arrays.asList(user("Rob Winch", "rwinch"), user("Luke Taylor", "luke"),
+			user("Joe Grandja", "jgrandja"), user("Some User", "someuser"), user("Another User", "anotheruser"));
+
+	private final JiraProject project;
+
+	public SyntheticJiraData(long seed, int issueCount) {
+		this.seed = seed;
+		this.issueCount = issueCount;
+		this.project = createProject();
+	}
+
+	public JiraProject getProject() {
+		return project;
+	}
+
+	public int getIssueCount() {
+		return issueCount;
+	}
+
+	public Stream<JiraIssue> issues() {
+		return IntStream.range(0, issueCount).mapToObj(this::issue);
+	}
+
+	/**
+	 * The issues in pages of the given size, like a JIRA search.
+	 */
+	public JiraSearchPager searchIssues(int maxResults) {
+		return new JiraSearchPager(startAt -> page(startAt, maxResults), 2, 1);
+	}
+
+	public void writeSnapshot(Path file) throws IOException {
+		try (JiraSearchPager issues = searchIssues(JiraSnapshot.PAGE_SIZE)) {
+			JiraSnapshot.write(file, "project = " + PROJECT_KEY + " ORDER BY key ASC", project, issues);
+		}
+	}
+
+	/**
+	 * The issue at the given index (0 based).
+	 */
+	public JiraIssue issue(int index) {
+		Random random = new Random(seed * 31 + index);
+		List<JiraVersion> versions = project.getVersions();
+
+		long span = LAST_CREATED.getMillis() - FIRST_CREATED.getMillis();
+		DateTime created = FIRST_CREATED.plus(span / Math.max(issueCount, 1) * index);
+		DateTime updated = created.plusHours(1 + random.nextInt(24 * 90));
+		boolean closed = random.nextInt(10) < 8;
+
+		JiraIssue.Fields fields = new JiraIssue.Fields();
+		fields.setSummary("Synthetic issue " + (index + 1));
+		fields.setDescription(random.nextInt(10) == 0 ? null : descriptions.get(random.nextInt(descriptions.size())));
+		fields.setCreated(created);
+		fields.setUpdated(updated);
+		fields.setReporter(users.get(random.nextInt(users.size())));
+		fields.setAssignee(random.nextBoolean() ? users.get(random.nextInt(users.size())) : null);
+		fields.setIssuetype(project.getIssueTypes().get(random.nextInt(project.getIssueTypes().size())));
+		fields.setComponents(Collections.singletonList(project.getComponents().get(random.nextInt(project.getComponents().size()))));
+		fields.setStatus(status(closed ? "Closed" : "Open"));
+		fields.setResolution(closed ? resolution("Fixed") : null);
+
+		// most issues have a single fix version, some are backported to older versions
+		int fixVersionCount = Math.min(weighted(random, 5, 80, 12, 3), versions.size());
+		int firstVersion = random.nextInt(versions.size() - fixVersionCount + 1);
+		List<JiraFixVersion> fixVersions = new ArrayList<>();
+		for(int i = 0; i < fixVersionCount; i++) {
+			fixVersions.add(new JiraFixVersion(versions.get(firstVersion + i).getName()));
+		}
+		fields.setFixVersions(fixVersions);
+
+		// the number of comments has a long tail
+		int commentCount = Math.min((int) (-Math.log(1 - random.nextDouble()) * 3), 40);
+		List<JiraComment> jiraComments = new ArrayList<>();
+		for(int i = 0; i < commentCount; i++) {
+			JiraComment comment = new JiraComment();
+			comment.setAuthor(users.get(random.nextInt(users.size())));
+			comment.setCreated(created.plusHours(i + 1));
+			comment.setBody(comments.get(random.nextInt(comments.size())));
+			jiraComments.add(comment);
+		}
+		JiraCommentPage commentPage = new JiraCommentPage();
+		commentPage.setComments(jiraComments);
+		fields.setComment(commentPage);
+
+		List<IssueLink> links = new ArrayList<>();
+		if(issueCount > 1 && random.nextInt(10) == 0) {
+			links.add(link(random.nextInt(issueCount), random.nextBoolean() ? "relates to" : "depends on"));
+		}
+		fields.setIssuelinks(links);
+
+		JiraIssue issue = new JiraIssue();
+		issue.setKey(key(index));
+		issue.setSelf("https://jira.example.com/rest/api/2/issue/" + (10000 + index));
+		issue.setFields(fields);
+		return issue;
+	}
+
+	private JiraSearchResult page(long startAt, int maxResults) {
+		JiraSearchResult result = new JiraSearchResult();
+		result.setIssues(IntStream.range((int) startAt, (int) Math.min(startAt + maxResults, issueCount))
+				.mapToObj(this::issue)
+				.collect(Collectors.toList()));
+		result.setStartAt(startAt);
+		result.setMaxResults(maxResults);
+		result.setTotal(issueCount);
+		return result;
+	}
+
+	private JiraProject createProject() {
+		List<JiraVersion> versions = new ArrayList<>();
+		DateTime releaseDate = FIRST_CREATED;
+		for(int major = 1; major <= 4; major++) {
+			for(int minor = 0; minor <= 2; minor++) {
+				for(int patch = 0; patch <= 5; patch++) {
+					JiraVersion version = new JiraVersion();
+					version.setName(major + "." + minor + "." + patch);
+					version.setReleased(true);
+					version.setReleaseDate(releaseDate);
+					versions.add(version);
+					releaseDate = releaseDate.plusMonths(2);
+				}
+			}
+		}
+
+		List<JiraComponent> components = new ArrayList<>();
+		for(String name : Arrays.asList("Core", "Web", "Config", "LDAP", "OAuth", "Docs")) {
+			JiraComponent component = new JiraComponent();
+			component.setName(name);
+			components.add(component);
+		}
+
+		List<JiraIssueType> issueTypes = new ArrayList<>();
+		for(String name : Arrays.asList("Bug", "Improvement", "New Feature", "Task")) {
+			JiraIssueType issueType = new JiraIssueType();
+			issueType.setName(name);
+			issueTypes.add(issueType);
+		}
+
+		JiraProject project = new JiraProject();
+		project.setVersions(versions);
+		project.setComponents(components);
+		project.setIssueTypes(issueTypes);
+		return project;
+	}
+
+	/**
+	 * Picks an index with the given relative weights.
+	 */
+	private static int weighted(Random random, int... weights) {
+		int n = random.nextInt(IntStream.of(weights).sum());
+		for(int i = 0; i < weights.length; i++) {
+			n -= weights[i];
+			if(n < 0) {
+				return i;
+			}
+		}
+		return weights.length - 1;
+	}
+
+	private static IssueLink link(int index, String outward) {
+		RelatedIssue related = new RelatedIssue();
+		related.setKey(key(index));
+		RelatedType type = new RelatedType();
+		type.setName(outward);
+		type.setOutward(outward);
+		IssueLink link = new IssueLink();
+		link.setOutwardIssue(related);
+		link.setType(type);
+		return link;
+	}
+
+	private static String key(int index) {
+		return PROJECT_KEY + "-" + (index + 1);
+	}
+
+	private static JiraUser user(String displayName, String key) {
+		JiraUser user = new JiraUser();
+		user.setDisplayName(displayName);
+		user.setKey(key);
+		user.setSelf("https://jira.example.com/rest/api/2/user?username=" + key);
+		return user;
+	}
+
+	private static JiraStatus status(String name) {
+		JiraStatus status = new JiraStatus();
+		status.setName(name);
+		return status;
+	}
+
+	private static JiraResolution resolution(String name) {
+		JiraResolution resolution = new JiraResolution();
+		resolution.setName(name);
+		return resolution;
+	}
+
+	/**
+	 * Writes a snapshot (see {@link JiraSnapshot}) with the number of issues given
+	 * as the second argument to the file given as the first argument.
+	 */
+	public static void main(String[] args) throws IOException {
+		Path file = Paths.get(args.length > 0 ? args[0] : "synthetic-jira-snapshot.ndjson.gz");
+		int issueCount = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+		new SyntheticJiraData(0, issueCount).writeSnapshot(file);
+		System.out.println("Wrote " + issueCount + " synthetic JIRA issues to " + file);
+	}
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pivotal.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.util.StreamUtils;
+
+/**
+ * JIRA bodies that are representative of what a migration converts. Each entry
+ * is read from corpus/{name}.txt on the classpath.
+ *
+ * @author Rob Winch
+ *
+ */
+public class Corpus {
+	/**
+	 * A one line comment with inline code, a link and a mention.
+	 */
+	public static final String SHORT_COMMENT = "short-comment";
+
+	/**
+	 * A bug report that is mostly a {noformat} stack trace.
+	 */
+	public static final String STACK_TRACE = "stack-trace";
+
+	/**
+	 * A header and several {code} blocks with a language.
+	 */
+	public static final String CONFIGURATION = "configuration";
+
+	/**
+	 * A reply with {quote} blocks, lists, links and mentions.
+	 */
+	public static final String LONG_DISCUSSION = "long-discussion";
+
+	public static String read(String name) {
+		try {
+			return StreamUtils.copyToString(new ClassPathResource("corpus/" + name + ".txt").getInputStream(), StandardCharsets.UTF_8);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private Corpus() {}
+}
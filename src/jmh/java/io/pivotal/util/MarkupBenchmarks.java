@@ -0,0 +1,85 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pivotal.util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.DateTime;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures converting each {@link Corpus} entry with both engines.
+ *
+ * @author Rob Winch
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MarkupBenchmarks {
+	@Param({ Corpus.SHORT_COMMENT, Corpus.STACK_TRACE, Corpus.CONFIGURATION, Corpus.LONG_DISCUSSION })
+	String corpus;
+
+	String text;
+
+	MarkdownEngine markdown;
+
+	TextileEngine textile;
+
+	MarkupEngine cached;
+
+	@Setup
+	public void setup() {
+		text = Corpus.read(corpus);
+		markdown = new MarkdownEngine();
+		markdown.setJiraBaseUrl("https://jira.spring.io");
+		textile = new TextileEngine();
+		textile.setJiraBaseUrl("https://jira.spring.io");
+		cached = new MarkupManager(markdown, textile).engine(DateTime.now());
+	}
+
+	@Benchmark
+	public String markdown() {
+		return markdown.convert(text);
+	}
+
+	@Benchmark
+	public String textile() {
+		return textile.convert(text);
+	}
+
+	/**
+	 * Converts the same text with markdown again, which is a hit in the cache of
+	 * the {@link MarkupManager}.
+	 */
+	@Benchmark
+	public String cachedMarkdown() {
+		return cached.convert(text);
+	}
+}
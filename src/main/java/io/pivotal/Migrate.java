@@ -15,8 +15,9 @@
  */
 package io.pivotal;
 
-import java.util.List;
+import java.nio.file.Paths;
 
+import org.joda.time.DateTime;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
@@ -24,11 +25,14 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.client.HttpClientErrorException;
 
+import com.codahale.metrics.Timer;
+
 import io.pivotal.github.GithubClient;
 import io.pivotal.jira.JiraClient;
 import io.pivotal.jira.JiraConfig;
-import io.pivotal.jira.JiraIssue;
 import io.pivotal.jira.JiraProject;
+import io.pivotal.jira.JiraSearchPager;
+import io.pivotal.util.MigrationMetrics;
 
 /**
  * @author Rob Winch
@@ -46,12 +50,54 @@ public class Migrate implements CommandLineRunner {
 	@Autowired
 	JiraConfig jiraConfig;
 
+	@Autowired
+	MigrationMetrics metrics;
+
 	public static void main(String args[]) {
 		SpringApplication.run(Migrate.class);
 	}
 
 	@Override
 	public void run(String... strings) throws Exception {
+		if(jiraConfig.getExportSnapshot() != null) {
+			jira.exportSnapshot(Paths.get(jiraConfig.getExportSnapshot()), getJiraProjectId(), jiraConfig.getMigrateJql());
+			return;
+		}
+
+		try (Timer.Context migration = metrics.phase("migration")) {
+			DateTime watermark = github.getSyncWatermark();
+			boolean incremental = jiraConfig.isIncremental() && watermark != null;
+			String jql = jiraConfig.getMigrateJql();
+			if(incremental) {
+				System.out.println("Syncing the issues updated since " + watermark);
+				// new versions and components need their milestones and labels
+				createMilestonesAndLabels();
+				jql = jiraConfig.getMigrateJql(watermark);
+			} else if(github.isResuming()) {
+				System.out.println("Resuming the migration recorded in the journal");
+			} else {
+				prepareRepository();
+			}
+
+			System.out.println("Getting JIRA issues");
+			DateTime queried = DateTime.now();
+			try (JiraSearchPager issues = jira.searchIssues(jql)) {
+				System.out.println("Found "+issues.getTotal()+ " JIRA issues to migrate");
+
+				System.out.println("Creating issues");
+				if(incremental) {
+					github.syncIssues(issues.stream(), issues.getTotal(), watermark);
+				} else {
+					github.createIssues(issues.stream(), issues.getTotal());
+				}
+			}
+			github.synced(queried);
+		} finally {
+			metrics.report();
+		}
+	}
+
+	private void prepareRepository() throws Exception {
 		try {
 			github.deleteRepository();
 		}catch(HttpClientErrorException e) {
@@ -62,22 +108,23 @@ public class Migrate implements CommandLineRunner {
 		System.out.println("Creating a test repository to place the issues in");
 		github.createRepository();
 
-		System.out.println("Finding the project info");
-		JiraProject project = jira.findProject(getJiraProjectId());
-
-		System.out.println("Creating Milestones");
-		github.createMilestones(project.getVersions());
-		System.out.println("Creating Labels");
-		github.createComponentLabels(project.getComponents());
-		github.createIssueTypeLabels(project.getIssueTypes());
-
-		System.out.println("Getting JIRA issues");
-		List<JiraIssue> issues = jira.findIssues(jiraConfig.getMigrateJql());
-		System.out.println("Found "+issues.size()+ " JIRA issues to migrate");
+		createMilestonesAndLabels();
+	}
 
-		System.out.println("Creating issues");
-		github.createIssues(issues);
+	private void createMilestonesAndLabels() throws Exception {
+		System.out.println("Finding the project info");
+		JiraProject project;
+		try (Timer.Context phase = metrics.phase("jira-project")) {
+			project = jira.findProject(getJiraProjectId());
+		}
 
+		try (Timer.Context phase = metrics.phase("milestones-and-labels")) {
+			System.out.println("Creating Milestones");
+			github.createMilestones(project.getVersions());
+			System.out.println("Creating Labels");
+			github.createComponentLabels(project.getComponents());
+			github.createIssueTypeLabels(project.getIssueTypes());
+		}
 	}
 
 	private String getJiraProjectId() {
@@ -15,54 +15,74 @@
  */
 package io.pivotal.github;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.net.HttpURLConnection;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
-import org.eclipse.egit.github.core.IRepositoryIdProvider;
-import org.eclipse.egit.github.core.Label;
-import org.eclipse.egit.github.core.Milestone;
-import org.eclipse.egit.github.core.RepositoryId;
-import org.eclipse.egit.github.core.client.GitHubClient;
-import org.eclipse.egit.github.core.client.RequestException;
-import org.eclipse.egit.github.core.service.CommitService;
-import org.eclipse.egit.github.core.service.IssueService;
-import org.eclipse.egit.github.core.service.LabelService;
-import org.eclipse.egit.github.core.service.MilestoneService;
 import org.joda.time.DateTime;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.RequestEntity;
-import org.springframework.http.RequestEntity.BodyBuilder;
-import org.springframework.http.ResponseEntity;
-import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RequestCallback;
 import org.springframework.web.client.ResponseExtractor;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
-import org.springframework.web.util.UriComponents;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import com.codahale.metrics.Timer;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
-import io.pivotal.jira.IssueLink;
+import io.pivotal.github.MigrationJournal.Phase;
 import io.pivotal.jira.JiraComment;
 import io.pivotal.jira.JiraComponent;
 import io.pivotal.jira.JiraConfig;
@@ -76,7 +96,12 @@ import io.pivotal.jira.JiraUser;
 import io.pivotal.jira.JiraVersion;
 import io.pivotal.util.MarkupEngine;
 import io.pivotal.util.MarkupManager;
+import io.pivotal.util.MigrationMetrics;
+import io.pivotal.util.Progress;
+import io.pivotal.util.SharedHttpClient;
+import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 import lombok.RequiredArgsConstructor;
 
 /**
@@ -93,11 +118,140 @@ public class GithubClient {
 
 	Map<String, String> jiraUsernameToGithubUsername;
 
-	RestTemplate rest = new GithubRestTemplate();
+	GithubTokenPool tokens;
+
+	MigrationMetrics metrics = new MigrationMetrics();
+
+	RestTemplate rest = new GithubRestTemplate(new SimpleClientHttpRequestFactory(), this::getTokens, this::getMetrics);
+
+	/**
+	 * The number of results requested per page when listing.
+	 */
+	static final int PAGE_SIZE = 100;
+
+	static final MediaType IMPORT_MEDIA_TYPE = new MediaType("application", "vnd.github.golden-comet-preview+json");
+
+	/**
+	 * Writes the import requests, configured like the {@link ObjectMapper} of the
+	 * {@link RestTemplate}.
+	 */
+	private static final ObjectMapper JSON = Jackson2ObjectMapperBuilder.json().build();
+
+	/**
+	 * Issues with at least this many comments have their comments converted in
+	 * parallel.
+	 */
+	private static final int PARALLEL_COMMENTS = 32;
+
+	MigrationJournal journal = new MigrationJournal();
+
+	ImportStatusResolver importStatusResolver;
+
+	/**
+	 * The issue numbers that are being resolved by JIRA key, so each one is
+	 * recorded once no matter how many times it is waited for. Each is removed
+	 * once the number is in the {@link #importedIssues}.
+	 */
+	private final Map<String, CompletableFuture<Integer>> resolvingIssueNumbers = new ConcurrentHashMap<>();
+
+	private final Object predictionLock = new Object();
+
+	/**
+	 * The number GitHub is expected to assign to the next import, or null if the
+	 * issue numbers are not predicted. Guarded by the predictionLock.
+	 */
+	private Integer nextIssueNumber;
+
+	/**
+	 * The issues imported (or resumed) by the current migration.
+	 */
+	ImportedIssueStore importedIssues;
+
+	/**
+	 * The watermark of the previous sync, or null if not syncing. The issues that
+	 * were already migrated get the comments created since they were last
+	 * brought up to date, or since this if the journal does not record when.
+	 */
+	private DateTime syncSince;
+
+	/**
+	 * Opens the {@link GithubConfig#getJournal()} (if configured) so a migration
+	 * that was interrupted can be resumed.
+	 */
+	@PostConstruct
+	public void openJournal() throws IOException {
+		if(config.getJournal() != null) {
+			journal = new MigrationJournal(Paths.get(config.getJournal()));
+		}
+	}
+
+	@PostConstruct
+	public void configureTokens() {
+		List<String> accessTokens = new ArrayList<>();
+		accessTokens.add(config.getAccessToken());
+		accessTokens.addAll(config.getAdditionalAccessTokens());
+		tokens = new GithubTokenPool(accessTokens, config.getRequestsPerSecond(), config.getWritesPerSecond());
+	}
+
+	@PreDestroy
+	public void closeJournal() throws IOException {
+		journal.close();
+	}
+
+	/**
+	 * True if the journal shows a previous migration that should be resumed
+	 * rather than started over.
+	 */
+	public boolean isResuming() {
+		return !journal.isEmpty();
+	}
 
+	/**
+	 * The time the JIRA issues were queried by the last migration or sync that
+	 * finished, or null if none finished.
+	 */
+	public DateTime getSyncWatermark() {
+		return journal.getWatermark();
+	}
+
+	/**
+	 * Records that every JIRA issue updated before the watermark is migrated.
+	 */
+	public void synced(DateTime watermark) throws IOException {
+		journal.synced(watermark);
+	}
+
+	/**
+	 * Sends each request with a token from the {@link GithubTokenPool}. A request
+	 * that already has an Authorization header is sent with that token, otherwise
+	 * the token with the most remaining quota is used. Requests that are
+	 * rejected because of a rate limit are retried.
+	 */
 	static class GithubRestTemplate extends RestTemplate {
-		public GithubRestTemplate() {
-			super(new HttpComponentsClientHttpRequestFactory());
+		/**
+		 * The token the current thread last sent a request with, so a rejection can
+		 * be reported to its rate governor.
+		 */
+		private final ThreadLocal<GithubTokenPool.Token> lastToken = new ThreadLocal<>();
+
+		private final Supplier<MigrationMetrics> metrics;
+
+		public GithubRestTemplate(ClientHttpRequestFactory requestFactory, Supplier<GithubTokenPool> tokens, Supplier<MigrationMetrics> metrics) {
+			super(requestFactory);
+			this.metrics = metrics;
+			setInterceptors(Arrays.asList((request, body, execution) -> {
+				GithubTokenPool.Token token = selectToken(tokens.get(), request.getHeaders());
+				lastToken.set(token);
+				boolean write = request.getMethod() != HttpMethod.GET && request.getMethod() != HttpMethod.HEAD;
+				long waited = acquire(token.getRateGovernor(), write);
+				if(waited > 0) {
+					metrics.get().timer("github.rate-limit.waits").update(waited, TimeUnit.MILLISECONDS);
+				}
+				request.getHeaders().set(HttpHeaders.AUTHORIZATION, "token " + token.getAccessToken());
+				ClientHttpResponse response = execution.execute(request, body);
+				token.getRateGovernor().update(response.getHeaders());
+				return response;
+			}, (request, body, execution) -> metrics.get().execute("github", request, body, execution)));
 		}
 
 		/* (non-Javadoc)
@@ -106,53 +260,61 @@ public class GithubClient {
 		@Override
 		protected <T> T doExecute(URI url, HttpMethod method, RequestCallback requestCallback,
 				ResponseExtractor<T> responseExtractor) throws RestClientException {
-			return doExecute(url, method, requestCallback, responseExtractor, 45);
-		}
-
-		private <T> T doExecute(URI url, HttpMethod method, RequestCallback requestCallback,
-				ResponseExtractor<T> responseExtractor, long abuseSleepTimeInSeconds) throws RestClientException {
 			try {
-				return super.doExecute(url, method, requestCallback, responseExtractor);
-			} catch(HttpClientErrorException e) {
-				HttpHeaders headers = e.getResponseHeaders();
-				long sleep = 0;
-				if(!"0".equals(headers.getFirst("X-RateLimit-Remaining"))) {
-					if(e.getResponseBodyAsString().contains("https://developer.github.com/v3/#abuse-rate-limits")) {
-						System.out.println("Recieved https://developer.github.com/v3/#abuse-rate-limits with no indication of how long to wait. Let's guess & wait "+abuseSleepTimeInSeconds+ " seconds.");
-						sleep = TimeUnit.SECONDS.toMillis(abuseSleepTimeInSeconds);
-					} else {
-						System.out.println(e.getResponseBodyAsString());
-						throw e;
+				while(true) {
+					try {
+						T result = super.doExecute(url, method, requestCallback, responseExtractor);
+						lastToken.get().getRateGovernor().succeeded();
+						return result;
+					} catch(HttpClientErrorException e) {
+						GithubTokenPool.Token token = lastToken.get();
+						if(token == null || !token.getRateGovernor().rejected(e.getStatusCode(), e.getResponseHeaders(), e.getResponseBodyAsString())) {
+							System.out.println(e.getResponseBodyAsString());
+							throw e;
+						}
+						metrics.get().counter("github.retries").inc();
 					}
-				} else {
-					System.out.println("Received X-RateLimit-Reset. Waiting to do additional work");
-					sleep = (1000 * Long.parseLong(headers.getFirst("X-RateLimit-Reset"))) - System.currentTimeMillis();
 				}
-				sleepFor(sleep);
+			} finally {
+				lastToken.remove();
 			}
-			return doExecute(url, method, requestCallback, responseExtractor, abuseSleepTimeInSeconds * 2);
 		}
 
-		private void sleepFor(long sleep) {
-			if(sleep < 1) {
-				return;
+		private static GithubTokenPool.Token selectToken(GithubTokenPool tokens, HttpHeaders headers) {
+			String authorization = headers.getFirst(HttpHeaders.AUTHORIZATION);
+			if(authorization == null) {
+				return tokens.select();
 			}
-			long endTime = System.currentTimeMillis() + sleep;
-			System.out.println("Sleeping until "+ new DateTime(endTime));
-			for(long now = System.currentTimeMillis(); now < endTime; now = System.currentTimeMillis()) {
-				try {
-					Thread.sleep(sleep);
-				} catch (InterruptedException e1) {
-				}
+			GithubTokenPool.Token token = tokens.get(authorization.replaceFirst("^token ", ""));
+			if(token == null) {
+				throw new IllegalArgumentException("The Authorization header must use a token from the GithubTokenPool");
 			}
-			System.out.println("Continuing");
+			return token;
 		}
+	}
 
+	static long acquire(GithubRateGovernor rateGovernor, boolean write) {
+		try {
+			return rateGovernor.acquire(write);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for the GitHub rate limit", e);
+		}
 	}
 
 	@Autowired
 	MarkupManager markup;
 
+	@Autowired
+	public void setMetrics(MigrationMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	@Autowired
+	public void setSharedHttpClient(SharedHttpClient http) {
+		rest = new GithubRestTemplate(http.getRequestFactory(), this::getTokens, this::getMetrics);
+	}
+
 	@Autowired
 	public void setUserMappingResource(@Value("classpath:jira-to-github-users.properties") Resource resource) throws IOException {
 		Properties properties = new Properties();
@@ -165,7 +327,7 @@ public class GithubClient {
 	}
 
 	public String getRepositoryUrl() {
-		return "https://api.github.com/repos/" + getRepositorySlug();
+		return config.getApiUrl() + "/repos/" + getRepositorySlug();
 	}
 
 	public void deleteRepository() throws IOException {
@@ -174,19 +336,20 @@ public class GithubClient {
 		}
 		String slug = getRepositorySlug();
 
-		CommitService commitService = new CommitService(client());
 		try {
-			commitService.getCommits(createRepositoryId());
+			rest.exchange(RequestEntity.get(repositoryUri("commits").build().toUri()).build(), String.class);
 			throw new IllegalStateException("Attempting to delete a repository that has commits. Terminating!");
-		} catch(RequestException e) {
-			if(e.getStatus() != 404 & e.getStatus() != 409) {
+		} catch(HttpClientErrorException e) {
+			if(e.getStatusCode() != HttpStatus.NOT_FOUND && e.getStatusCode() != HttpStatus.CONFLICT) {
 				throw new IllegalStateException("Attempting to delete a repository, but it appears the repository may have commits. Terminating!", e);
 			}
 		}
 
-		UriComponentsBuilder uri = UriComponentsBuilder.fromUriString("https://api.github.com/repos/" + slug)
-				.queryParam("access_token", getAccessToken());
-		rest.delete(uri.toUriString());
+		URI uri = UriComponentsBuilder.fromUriString(config.getApiUrl() + "/repos/" + slug).build().toUri();
+		RequestEntity<Void> request = RequestEntity.delete(uri)
+				.header(HttpHeaders.AUTHORIZATION, "token " + getAccessToken())
+				.build();
+		rest.exchange(request, Void.class);
 	}
 
 	public void createRepository() throws IOException {
@@ -195,198 +358,852 @@ public class GithubClient {
 		}
 		String slug = getRepositorySlug();
 
-		UriComponentsBuilder uri = UriComponentsBuilder.fromUriString("https://api.github.com/user/repos")
-				.queryParam("access_token", getAccessToken());
+		URI uri = UriComponentsBuilder.fromUriString(config.getApiUrl() + "/user/repos").build().toUri();
 		Map<String, String> repository = new HashMap<>();
 		repository.put("name", slug.split("/")[1]);
-		rest.postForEntity(uri.toUriString(), repository, String.class);
+		// the repository is created for the owner of the primary token
+		RequestEntity<Map<String, String>> request = RequestEntity.post(uri)
+				.header(HttpHeaders.AUTHORIZATION, "token " + getAccessToken())
+				.body(repository);
+		rest.exchange(request, String.class);
 	}
 
-	public void createMilestones(List<JiraVersion> versions) throws IOException {
-		MilestoneService milestones = new MilestoneService(client());
+	/**
+	 * Creates a milestone for each version that does not already have one, so
+	 * the migration can be run again against the same repository.
+	 */
+	public void createMilestones(List<JiraVersion> versions) throws IOException, InterruptedException {
+		Set<String> existingMilestones = getAll(repositoryUri("milestones").queryParam("state", "all"), GithubMilestone[].class).stream()
+				.map(GithubMilestone::getTitle)
+				.collect(Collectors.toSet());
+		Map<String, GithubMilestone> missing = new LinkedHashMap<>();
 		for (JiraVersion version : versions) {
-			Milestone milestone = new Milestone();
+			if (existingMilestones.contains(version.getName())) {
+				continue;
+			}
+			GithubMilestone milestone = new GithubMilestone();
 			milestone.setTitle(version.getName());
 			milestone.setState(version.isReleased() ? "closed" : "open");
-			if (version.getReleaseDate() != null) {
-				milestone.setDueOn(version.getReleaseDate().toDate());
+			milestone.setDueOn(version.getReleaseDate());
+			missing.putIfAbsent(milestone.getTitle(), milestone);
+		}
+		createAll("milestones", missing.values());
+		System.out.println("Created " + missing.size() + " milestones (" + existingMilestones.size() + " already existed)");
+	}
+
+	public void createComponentLabels(List<JiraComponent> components) throws IOException, InterruptedException {
+		createLabels(components.stream().map(JiraComponent::getName), "000000");
+	}
+
+	public void createIssueTypeLabels(List<JiraIssueType> issueTypes) throws IOException, InterruptedException {
+		createLabels(issueTypes.stream().map(JiraIssueType::getName), "eeeeee");
+	}
+
+	/**
+	 * Creates a label for each name that does not already have one. GitHub
+	 * compares the names of labels ignoring case.
+	 */
+	private void createLabels(Stream<String> names, String color) throws InterruptedException {
+		Set<String> existingLabels = getAll(repositoryUri("labels"), GithubLabel[].class).stream()
+				.map(l -> l.getName().toLowerCase())
+				.collect(Collectors.toSet());
+		Map<String, GithubLabel> missing = new LinkedHashMap<>();
+		names.filter(name -> !existingLabels.contains(name.toLowerCase()))
+			.forEach(name -> missing.putIfAbsent(name.toLowerCase(), new GithubLabel(name, color)));
+		createAll("labels", missing.values());
+		System.out.println("Created " + missing.size() + " labels (" + existingLabels.size() + " already existed)");
+	}
+
+	/**
+	 * Creates each of the bodies concurrently. The requests are still paced by
+	 * the rate governor of the token they are sent with.
+	 */
+	private void createAll(String path, Collection<?> bodies) throws InterruptedException {
+		if(bodies.isEmpty()) {
+			return;
+		}
+		ExecutorService createExecutor = Executors.newFixedThreadPool(Math.min(config.getImportThreads(), bodies.size()));
+		try {
+			List<Future<?>> creates = new ArrayList<>();
+			for(Object body : bodies) {
+				creates.add(createExecutor.submit(() -> create(path, body)));
+			}
+			for(Future<?> create : creates) {
+				await(create);
 			}
-			milestones.createMilestone(createRepositoryId(), milestone);
+		} finally {
+			createExecutor.shutdownNow();
 		}
 	}
 
-	public void createComponentLabels(List<JiraComponent> components) throws IOException {
-		LabelService labels = new LabelService(client());
-		for (JiraComponent component : components) {
-			Label label = new Label();
-			label.setColor("000000");
-			label.setName(component.getName());
-			labels.createLabel(createRepositoryId(), label);
+	private void create(String path, Object body) {
+		RequestEntity<Object> request = RequestEntity.post(repositoryUri(path).build().toUri())
+				.accept(MediaType.APPLICATION_JSON)
+				.body(body);
+		try {
+			rest.exchange(request, Void.class);
+		} catch(HttpClientErrorException e) {
+			// created since the existing ones were listed, e.g. by another migration
+			if(e.getStatusCode() != HttpStatus.UNPROCESSABLE_ENTITY || !e.getResponseBodyAsString().contains("already_exists")) {
+				throw e;
+			}
 		}
 	}
 
-	public void createIssueTypeLabels(List<JiraIssueType> issueTypes) throws IOException {
-		LabelService labels = new LabelService(client());
-		Set<String> existingLabels = labels.getLabels(createRepositoryId()).stream().map(l -> l.getName().toLowerCase())
-				.collect(Collectors.toSet());
-		for (JiraIssueType issueType : issueTypes) {
-			if (existingLabels.contains(issueType.getName().toLowerCase())) {
-				continue;
+	/**
+	 * Gets every page of a list.
+	 */
+	private <T> List<T> getAll(UriComponentsBuilder uri, Class<T[]> type) {
+		URI listUri = uri.build().toUri();
+		List<T> all = new ArrayList<>();
+		for(int page = 1;; page++) {
+			URI pageUri = UriComponentsBuilder.fromUri(listUri)
+					.queryParam("per_page", PAGE_SIZE)
+					.queryParam("page", page)
+					.build()
+					.toUri();
+			T[] results = rest.exchange(RequestEntity.get(pageUri).accept(MediaType.APPLICATION_JSON).build(), type).getBody();
+			all.addAll(Arrays.asList(results));
+			if(results.length < PAGE_SIZE) {
+				return all;
 			}
-			Label label = new Label();
-			label.setColor("eeeeee");
-			label.setName(issueType.getName());
-			labels.createLabel(createRepositoryId(), label);
 		}
 	}
 
+	private UriComponentsBuilder repositoryUri(String path) {
+		return UriComponentsBuilder.fromUriString(getRepositoryUrl()).pathSegment(path);
+	}
+
 	// https://gist.github.com/jonmagic/5282384165e0f86ef105#start-an-issue-import
-	public void createIssues(List<JiraIssue> issues) throws IOException, InterruptedException {
-		MilestoneService milestones = new MilestoneService(client());
-		Map<String, Milestone> nameToMilestone = milestones.getMilestones(createRepositoryId(), "all").stream()
-				.collect(Collectors.toMap(Milestone::getTitle, Function.identity()));
-
-		Map<String,ImportedIssue> jiraIdToImportedIssue = new HashMap<>();
-		int i = 0;
-		for (JiraIssue issue : issues) {
-			i++;
-			ImportedIssue importedIssue = importIssue(nameToMilestone, issue);
-			if(i % 100 == 0) {
-				System.out.println("Migrated " + i + " issues");
+	/**
+	 * @param total the number of issues in the stream (or -1 if unknown), which
+	 * is used to report the progress
+	 */
+	public void createIssues(Stream<JiraIssue> issues, long total) throws IOException, InterruptedException {
+		Map<String, GithubMilestone> nameToMilestone = getAll(repositoryUri("milestones").queryParam("state", "all"), GithubMilestone[].class).stream()
+				.collect(Collectors.toMap(GithubMilestone::getTitle, Function.identity()));
+
+		if(config.isPredictIssueNumbers()) {
+			if(!journal.isEmpty()) {
+				System.out.println("Not predicting issue numbers since the migration is resumed");
+			} else if(hasIssues()) {
+				System.out.println("Not predicting issue numbers since the repository already has issues or pull requests");
+			} else {
+				nextIssueNumber = 1;
+				System.out.println("Predicting issue numbers starting at #" + nextIssueNumber);
 			}
-			jiraIdToImportedIssue.put(issue.getKey(),importedIssue);
 		}
-		System.out.println("Migrated " + i + " issues total");
+		try (ImportStatusResolver resolver = new ImportStatusResolver(this::getImportStatus, config.getImportStatusThreads());
+				ImportedIssueStore store = new ImportedIssueStore()) {
+			importStatusResolver = resolver;
+			importedIssues = store;
+			createIssues(issues, total, nameToMilestone);
+		} finally {
+			importStatusResolver = null;
+			importedIssues = null;
+			nextIssueNumber = null;
+			resolvingIssueNumbers.clear();
+		}
+	}
+
+	/**
+	 * Like {@link #createIssues(Stream, long)}, but the issues that were already
+	 * migrated are brought up to date instead of being skipped. Only the
+	 * comments that are not on GitHub yet are posted, and the state and labels
+	 * are changed if they no longer match JIRA.
+	 *
+	 * @param since the watermark of the previous sync
+	 */
+	public void syncIssues(Stream<JiraIssue> issues, long total, DateTime since) throws IOException, InterruptedException {
+		syncSince = since;
+		try {
+			createIssues(issues, total);
+		} finally {
+			syncSince = null;
+		}
+	}
+
+	/**
+	 * Imports the issues in two stages. The issues are converted by
+	 * {@link GithubConfig#getConversionThreads()} threads and the converted
+	 * issues are sent by {@link GithubConfig#getImportThreads()} threads, so the
+	 * time spent converting overlaps the time spent waiting on GitHub. The
+	 * converted issues are handed to the import threads in the order of the
+	 * JIRA issues, so with one import thread GitHub numbers the issues in that
+	 * order (which the predicted issue numbers rely on).
+	 */
+	private void createIssues(Stream<JiraIssue> issues, long total, Map<String, GithubMilestone> nameToMilestone) throws IOException, InterruptedException {
+		int importThreads = config.getImportThreads();
+		ExecutorService importExecutor = Executors.newFixedThreadPool(importThreads);
+		ForkJoinPool conversionPool = new ForkJoinPool(config.getConversionThreads());
+		try (Timer.Context phase = metrics.phase("import");
+				Progress progress = metrics.progress("Migrated", total, this::getRateLimitStatus)) {
+			// only pull as many issues from the stream as the workers can keep busy,
+			// which bounds the converted issues that are waiting to be sent
+			int maxPending = importThreads * 2 + config.getConversionQueueSize();
+			Deque<Future<ImportedIssue>> imports = new ArrayDeque<>();
+			CompletableFuture<?> handedOff = CompletableFuture.completedFuture(null);
+			for (Iterator<JiraIssue> i = issues.iterator(); i.hasNext();) {
+				JiraIssue issue = i.next();
+				CompletableFuture<ImportedIssue> migrated;
+				if(!journal.isCompleted(issue.getKey(), Phase.IMPORTED)) {
+					CompletableFuture<PreparedIssue> converted = supply(() -> prepareIssue(nameToMilestone, issue), conversionPool);
+					// the import is queued only after the one of the previous issue, however
+					// soon the issue is converted
+					CompletableFuture<CompletableFuture<ImportedIssue>> queued = handedOff.thenCombine(converted,
+							(previous, prepared) -> supply(() -> importIssue(nameToMilestone, prepared), importExecutor));
+					handedOff = queued;
+					migrated = queued.thenCompose(Function.identity());
+				} else if(syncSince != null) {
+					migrated = supply(() -> syncIssue(issue), importExecutor);
+				} else {
+					migrated = supply(() -> resumeImportedIssue(issue), importExecutor);
+				}
+				imports.add(migrated.thenApply(importedIssue -> {
+					metrics.meter("github.issues.migrated").mark();
+					progress.completed();
+					return importedIssue;
+				}));
+				while(imports.size() > maxPending) {
+					importedIssues.put(await(imports.poll()));
+				}
+			}
+			// collect in the order of the JIRA issues so the remaining phases are deterministic
+			while(!imports.isEmpty()) {
+				importedIssues.put(await(imports.poll()));
+			}
+		} finally {
+			conversionPool.shutdownNow();
+			importExecutor.shutdownNow();
+		}
 
 		System.out.println("Creating backported issues");
-		int b = 0;
-		for(ImportedIssue importedIssue : jiraIdToImportedIssue.values()) {
-			if(importedIssue.getBackportVersions().isEmpty()) {
-				continue;
+		try (Timer.Context phase = metrics.phase("backports")) {
+			createBackports(nameToMilestone);
+		}
+
+		try (Timer.Context phase = metrics.phase("links")) {
+			createLinks();
+		}
+
+		// also when resumed, since the migration that predicted them may have died
+		try (Timer.Context phase = metrics.phase("verify")) {
+			verifyPredictedIssueNumbers();
+		}
+	}
+
+	private void createBackports(Map<String, GithubMilestone> nameToMilestone) throws IOException, InterruptedException {
+		List<ImportedIssue> toBackport = importedIssues.getKeys().stream()
+				.filter(key -> !journal.isCompleted(key, Phase.BACKPORTED))
+				.map(importedIssues::get)
+				.filter(i -> !i.getBackportVersions().isEmpty())
+				.collect(Collectors.toList());
+		long total = toBackport.stream().mapToInt(i -> getMissingBackportVersions(i).size()).sum();
+		try (Progress progress = metrics.progress("Backported", total, this::getRateLimitStatus)) {
+			for(ImportedIssue importedIssue : toBackport) {
+				createBackports(nameToMilestone, importedIssue, progress);
+				journal.completed(importedIssue.getKey(), Phase.BACKPORTED);
 			}
-			createBackports(nameToMilestone, importedIssue);
-			b += importedIssue.getBackportVersions().size();
-			if(b % 100 == 0) {
-				System.out.println("Backported " + b + " issues");
+		}
+	}
+
+	/**
+	 * The backport versions that are not journaled yet, so a resumed migration
+	 * does not backport an issue to the same version twice.
+	 */
+	private List<String> getMissingBackportVersions(ImportedIssue importedIssue) {
+		Set<String> backported = journal.get(importedIssue.getKey()).getBackports().keySet();
+		return importedIssue.getBackportVersions().stream()
+				.filter(version -> !backported.contains(version))
+				.collect(Collectors.toList());
+	}
+
+	/**
+	 * Posts the links that could not be included when the issues were imported
+	 * because an issue they link to was not imported yet.
+	 */
+	private void createLinks() throws IOException, InterruptedException {
+		List<ImportedIssue> toLink = importedIssues.getKeys().stream()
+				.filter(key -> !journal.isCompleted(key, Phase.LINKED))
+				.map(importedIssues::get)
+				.filter(i -> !i.getOutwardLinks().isEmpty())
+				.collect(Collectors.toList());
+		ExecutorService linkExecutor = Executors.newFixedThreadPool(Math.max(1, Math.min(config.getImportThreads(), toLink.size())));
+		try (Progress progress = metrics.progress("Linked", toLink.size(), this::getRateLimitStatus)) {
+			List<Future<?>> links = new ArrayList<>();
+			for(ImportedIssue importedIssue : toLink) {
+				links.add(linkExecutor.submit(() -> {
+					createLinks(importedIssue);
+					progress.completed();
+					return null;
+				}));
+			}
+			for(Future<?> link : links) {
+				await(link);
 			}
+		} finally {
+			linkExecutor.shutdownNow();
 		}
-		System.out.println("Backported "+b+" issues total");
+	}
 
-		IssueService issueService = new IssueService(client());
-		for(ImportedIssue importedIssue : jiraIdToImportedIssue.values()) {
-			int issueNumber = getImportedIssueNumber(importedIssue);
-			List<IssueLink> outwardIssueLinks = importedIssue.getJiraIssue().getFields().getIssuelinks().stream().filter( l -> l.getOutwardIssue() != null).collect(Collectors.toList());
-			if(outwardIssueLinks.isEmpty()) {
-				continue;
+	private void createLinks(ImportedIssue importedIssue) throws IOException, InterruptedException {
+		List<OutwardLink> outwardLinks = importedIssue.getOutwardLinks();
+		Map<String, String> references = new HashMap<>();
+		Map<String, Integer> linkedIssueNumbers = new HashMap<>();
+		for(OutwardLink outward : outwardLinks) {
+			String linkedJiraKey = outward.getKey();
+			// might not be imported if linked to a JIRA that was not queried (i.e. we migrate Spring Security and it relates to Spring Framework)
+			if(!importedIssues.contains(linkedJiraKey)) {
+				references.put(linkedJiraKey, JiraIssue.getBrowserUrl(jiraConfig.getBaseUrl(), linkedJiraKey));
+			} else {
+				Integer linkedIssueNumber = getKnownIssueNumber(linkedJiraKey);
+				linkedIssueNumbers.put(linkedJiraKey, linkedIssueNumber == null ? getImportedIssueNumber(importedIssues.get(linkedJiraKey)) : linkedIssueNumber);
+				references.put(linkedJiraKey, "#" + linkedIssueNumbers.get(linkedJiraKey));
 			}
-			String comment = "\n";
-			for(IssueLink outward : outwardIssueLinks) {
-				String linkedJiraKey = outward.getOutwardIssue().getKey();
-				// might be null if linked to a JIRA that was not queried (i.e. we migrate Spring Security and it relates to Spring Framework)
-				ImportedIssue linkedIssue = jiraIdToImportedIssue.get(linkedJiraKey);
-				String linkedIssueReference = linkedIssue == null ?
-						JiraIssue.getBrowserUrl(jiraConfig.getBaseUrl(), linkedJiraKey) : getImportedIssueReference(linkedIssue);
-				comment += "\nThis issue " + outward.getType().getOutward() + " " + linkedIssueReference;
+		}
+		if(nextIssueNumber != null) {
+			// the verification needs to know which numbers were used
+			journal.linked(importedIssue.getKey(), linkedIssueNumbers);
+		}
+		createComment(getImportedIssueNumber(importedIssue), createLinkComment(outwardLinks, references::get));
+		journal.completed(importedIssue.getKey(), Phase.LINKED);
+		metrics.counter("github.links.commented").inc();
+	}
+
+	/**
+	 * Creates the comment with the links of an issue that is about to be
+	 * imported, or null if the issue has no links or links to an issue whose
+	 * number is not known yet.
+	 *
+	 * @param linkedIssueNumbers the issue numbers that the comment uses are added
+	 * to this
+	 */
+	private GithubComment createLinkComment(List<OutwardLink> outwardLinks, Map<String, Integer> linkedIssueNumbers) {
+		if(outwardLinks.isEmpty()) {
+			return null;
+		}
+		Map<String, Integer> known = new HashMap<>();
+		for(OutwardLink outward : outwardLinks) {
+			Integer issueNumber = getKnownIssueNumber(outward.getKey());
+			if(issueNumber == null) {
+				return null;
 			}
-			issueService.createComment(createRepositoryId(), issueNumber, comment);
+			known.put(outward.getKey(), issueNumber);
 		}
+		linkedIssueNumbers.putAll(known);
+		GithubComment comment = new GithubComment();
+		comment.setBody(createLinkComment(outwardLinks, key -> "#" + linkedIssueNumbers.get(key)));
+		return comment;
+	}
 
+	private static String createLinkComment(List<OutwardLink> outwardLinks, Function<String, String> jiraKeyToReference) {
+		String comment = "\n";
+		for(OutwardLink outward : outwardLinks) {
+			comment += "\nThis issue " + outward.getText() + " " + jiraKeyToReference.apply(outward.getKey());
+		}
+		return comment;
 	}
 
-	private void createBackports(Map<String, Milestone> nameToMilestone, ImportedIssue importedIssue) throws InterruptedException {
-		String url = getImportedIssueReference(importedIssue);
-		JiraIssue jiraIssue = importedIssue.getJiraIssue();
-		for(JiraFixVersion version : importedIssue.getBackportVersions()) {
-			GithubIssue issue = createGithubIssue(nameToMilestone, jiraIssue, version);
-			issue.setBody("Backported " + url);
-			issue.getLabels().add("Backport");
+	private static List<OutwardLink> getOutwardLinks(JiraIssue issue) {
+		return issue.getFields().getIssuelinks().stream()
+				.filter(l -> l.getOutwardIssue() != null)
+				.map(l -> new OutwardLink(l.getOutwardIssue().getKey(), l.getType().getOutward()))
+				.collect(Collectors.toList());
+	}
 
-			ImportGithubIssue toImport = new ImportGithubIssue();
-			toImport.setIssue(issue);
+	/**
+	 * The rate limit budget summed over every token, which is reported with the
+	 * progress.
+	 */
+	String getRateLimitStatus() {
+		long now = System.currentTimeMillis();
+		int remaining = -1;
+		long resetMillis = Long.MAX_VALUE;
+		long pausedUntilMillis = 0;
+		long sleptMillis = 0;
+		for(GithubTokenPool.Token token : tokens.getTokens()) {
+			GithubRateGovernor.Budget budget = token.getRateGovernor().getBudget();
+			if(budget.getRemaining() >= 0) {
+				remaining = Math.max(remaining, 0) + budget.getRemaining();
+				resetMillis = Math.min(resetMillis, budget.getResetMillis());
+			}
+			pausedUntilMillis = Math.max(pausedUntilMillis, budget.getPausedUntilMillis());
+			sleptMillis += budget.getSleptMillis();
+		}
+		StringBuilder status = new StringBuilder("GitHub rate limit ");
+		if(remaining < 0) {
+			status.append("not reported yet");
+		} else {
+			status.append(remaining).append(" remaining, resets in ").append(Progress.duration(resetMillis - now));
+		}
+		if(pausedUntilMillis > now) {
+			status.append(", paused for ").append(Progress.duration(pausedUntilMillis - now));
+		}
+		return status.append(", waited ").append(Progress.duration(sleptMillis)).toString();
+	}
 
-			importIssue(toImport);
+	/**
+	 * Like {@link CompletableFuture#supplyAsync(java.util.function.Supplier, Executor)},
+	 * but the task may throw checked exceptions.
+	 */
+	private static <T> CompletableFuture<T> supply(Callable<T> task, Executor executor) {
+		CompletableFuture<T> result = new CompletableFuture<>();
+		executor.execute(() -> {
+			try {
+				result.complete(task.call());
+			} catch (Throwable e) {
+				result.completeExceptionally(e);
+			}
+		});
+		return result;
+	}
+
+	private static <T> T await(Future<T> future) throws InterruptedException {
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if(cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new IllegalStateException(cause);
+		}
+	}
+
+	private void createBackports(Map<String, GithubMilestone> nameToMilestone, ImportedIssue importedIssue, Progress progress) throws IOException, InterruptedException {
+		List<String> versions = getMissingBackportVersions(importedIssue);
+		if(versions.isEmpty()) {
+			return;
+		}
+		int issueNumber = getImportedIssueNumber(importedIssue);
+		GithubIssue issue = importedIssue.getBackport();
+		for(String version : versions) {
+			issue.setMilestone(getMilestoneNumber(nameToMilestone, version));
+			issue.setBody("Backported #" + issueNumber);
+
+			String importUrl = importIssue(issue).getUrl();
+			journal.backported(importedIssue.getKey(), version, importUrl, issueNumber);
+			progress.completed();
 		}
 	}
 
-	private String getImportedIssueReference(ImportedIssue importedIssue) throws InterruptedException {
-		return "#" + getImportedIssueNumber(importedIssue);
+	/**
+	 * The GitHub issue number of the JIRA key if it is known, or else the
+	 * predicted one, or null if neither is known yet.
+	 */
+	private Integer getKnownIssueNumber(String key) {
+		Integer issueNumber = importedIssues.getIssueNumber(key);
+		if(issueNumber != null || nextIssueNumber == null) {
+			return issueNumber;
+		}
+		MigrationJournal.Entry entry = journal.get(key);
+		return entry == null ? null : entry.getPredictedIssueNumber();
 	}
 
 	private int getImportedIssueNumber(ImportedIssue importedIssue) throws InterruptedException {
-		if(importedIssue.getIssueNumber() != null) {
-			return importedIssue.getIssueNumber();
+		Integer issueNumber = importedIssues.getIssueNumber(importedIssue.getKey());
+		if(issueNumber != null) {
+			return issueNumber;
 		}
-		String importIssuesUrl = importedIssue.getImportResponse().getUrl();
+		return await(resolveIssueNumber(importedIssue));
+	}
+
+	/**
+	 * Tracks the import in the background, recording the issue number as soon as
+	 * GitHub reports it.
+	 */
+	private CompletableFuture<Integer> resolveIssueNumber(ImportedIssue importedIssue) {
+		String key = importedIssue.getKey();
+		CompletableFuture<Integer> resolving = resolvingIssueNumbers.computeIfAbsent(key, k -> {
+			// it may have been resolved (and removed) since the caller looked
+			Integer resolved = importedIssues.getIssueNumber(key);
+			if(resolved != null) {
+				return CompletableFuture.completedFuture(resolved);
+			}
+			return importStatusResolver.resolve(importedIssue.getImportUrl()).thenApply(issueNumber -> {
+				try {
+					journal.resolved(key, issueNumber);
+				} catch(IOException e) {
+					throw new UncheckedIOException(e);
+				}
+				importedIssues.setIssueNumber(key, issueNumber);
+				return issueNumber;
+			});
+		});
+		resolving.thenRun(() -> resolvingIssueNumbers.remove(key, resolving));
+		return resolving;
+	}
 
+	private ImportStatusResponse getImportStatus(String importUrl) {
 		URI uri = UriComponentsBuilder
-				.fromUriString(importIssuesUrl)
+				.fromUriString(importUrl)
 				.build()
 				.toUri();
 		RequestEntity<Void> request = RequestEntity.get(uri)
-				.accept(new MediaType("application", "vnd.github.golden-comet-preview+json"))
-				.header("Authorization", "token " + getAccessToken())
+				.accept(IMPORT_MEDIA_TYPE)
 				.build();
+		return rest.exchange(request, ImportStatusResponse.class).getBody();
+	}
 
-		long secondsToWait = 1;
-		while(true) {
-			ResponseEntity<ImportStatusResponse> result = rest.exchange(request, ImportStatusResponse.class);
-			String url = result.getBody().getIssueUrl();
-			if(url == null) {
-				System.out.println("Issue "+ importedIssue.getJiraIssue().getKey()+" is still pending import, waiting "+secondsToWait +" seconds to look up GitHub issue number again");
-				Thread.sleep(TimeUnit.SECONDS.toMillis(secondsToWait));
-				secondsToWait = (1 + secondsToWait) * 2;
-				continue;
-			}
-			UriComponents parts = UriComponentsBuilder.fromUriString(url).build();
-			List<String> segments = parts.getPathSegments();
-			int issueNumber = Integer.parseInt(segments.get(segments.size() - 1));
-			importedIssue.setIssueNumber(issueNumber);
-			return issueNumber;
-		}
+	private void createComment(int issueNumber, String comment) {
+		URI uri = UriComponentsBuilder
+				.fromUriString(getRepositoryUrl())
+				.pathSegment("issues", String.valueOf(issueNumber), "comments")
+				.build()
+				.toUri();
+		RequestEntity<Map<String, String>> request = RequestEntity.post(uri)
+				.accept(MediaType.APPLICATION_JSON)
+				.body(Collections.singletonMap("body", comment));
+		rest.exchange(request, Void.class);
 	}
 
-	private ImportedIssue importIssue(Map<String, Milestone> nameToMilestone, JiraIssue issue) {
+	/**
+	 * Converts the issue and writes the body of its import, so the import
+	 * threads only need to send it.
+	 */
+	PreparedIssue prepareIssue(Map<String, GithubMilestone> nameToMilestone, JiraIssue issue) throws IOException {
 		List<JiraFixVersion> fixVersions = JiraFixVersion.sort(issue.getFields().getFixVersions());
 		JiraFixVersion fixVersion = fixVersions.isEmpty() ? null : fixVersions.get(0);
 
-		ImportGithubIssue importIssue = createImportIssue(nameToMilestone, issue, fixVersion);
+		GithubIssue ghIssue = createGithubIssue(nameToMilestone, issue, fixVersion);
 
-		ResponseEntity<ImportGithubIssueResponse> result = importIssue(importIssue);
-		ImportGithubIssueResponse importResponse = result.getBody();
-		List<JiraFixVersion> versionsToBackport = fixVersions.size() <= 1 ? Collections.emptyList() : fixVersions.subList(1, fixVersions.size());
+		List<JiraFixVersion> backportVersions = getBackportVersions(fixVersions);
+		List<OutwardLink> outwardLinks = getOutwardLinks(issue);
+		boolean predicting = nextIssueNumber != null;
+		Map<String, Integer> linkedIssueNumbers = new HashMap<>();
+		// the journal links after backporting, so unless the backports are imported
+		// along with the issue, only issues without backports can be linked up front
+		GithubComment linkComment = predicting || backportVersions.isEmpty() ? createLinkComment(outwardLinks, linkedIssueNumbers) : null;
+		List<GithubComment> comments = createComments(issue);
+		if(linkComment != null) {
+			comments.add(linkComment);
+		}
 
-		return new ImportedIssue(issue, importResponse, versionsToBackport);
+		ByteArrayOutputStream body = new ByteArrayOutputStream(8192);
+		writeImportIssue(body, ghIssue, comments);
+		// only the written body needs the converted description
+		ghIssue.setBody(null);
 
+		PreparedIssue prepared = new PreparedIssue(issue, ghIssue, backportVersions, body.toByteArray());
+		if(linkComment != null) {
+			prepared.setLinkedIssueNumbers(linkedIssueNumbers);
+		}
+		return prepared;
 	}
 
-	private ResponseEntity<ImportGithubIssueResponse> importIssue(ImportGithubIssue importIssue) {
-		URI uri = UriComponentsBuilder
-				.fromUriString(getRepositoryUrl())
-				.pathSegment("import", "issues")
+	private ImportedIssue importIssue(Map<String, GithubMilestone> nameToMilestone, PreparedIssue prepared) throws IOException {
+		JiraIssue issue = prepared.getIssue();
+		ImportedIssue importedIssue;
+		if(nextIssueNumber != null) {
+			importedIssue = importWithBackports(nameToMilestone, prepared);
+		} else {
+			ImportGithubIssueResponse importResponse = importIssue(prepared.getBody());
+			journal.imported(issue.getKey(), importResponse.getUrl(), null, getCommentedUntil(issue), prepared.getGhIssue().getLabels());
+			importedIssue = createImportedIssue(issue, importResponse.getUrl(), prepared.getBackportVersions(), prepared.getGhIssue());
+		}
+		Map<String, Integer> linkedIssueNumbers = prepared.getLinkedIssueNumbers();
+		if(linkedIssueNumbers != null) {
+			if(nextIssueNumber != null) {
+				journal.linked(issue.getKey(), linkedIssueNumbers);
+			}
+			journal.completed(issue.getKey(), Phase.LINKED);
+			metrics.counter("github.links.imported").inc();
+		}
+
+		// the time GitHub takes to assign the issue number once the import is accepted
+		Timer.Context pending = metrics.timer("github.import.pending").time();
+		resolveIssueNumber(importedIssue).whenComplete((issueNumber, failure) -> pending.stop());
+		return importedIssue;
+	}
+
+	/**
+	 * Creates the {@link ImportedIssue} that is kept once the issue is imported.
+	 *
+	 * @param ghIssue the issue the backports are created from
+	 */
+	private static ImportedIssue createImportedIssue(JiraIssue issue, String importUrl, List<JiraFixVersion> backportVersions, GithubIssue ghIssue) {
+		ImportedIssue importedIssue = new ImportedIssue();
+		importedIssue.setKey(issue.getKey());
+		importedIssue.setImportUrl(importUrl);
+		importedIssue.setOutwardLinks(getOutwardLinks(issue));
+		if(!backportVersions.isEmpty()) {
+			importedIssue.setBackportVersions(backportVersions.stream().map(JiraFixVersion::getName).collect(Collectors.toList()));
+			GithubIssue backport = new GithubIssue();
+			backport.setTitle(ghIssue.getTitle());
+			backport.setClosed(ghIssue.isClosed());
+			backport.setClosedAt(ghIssue.getClosedAt());
+			backport.setAssignee(ghIssue.getAssignee());
+			backport.setCreatedAt(ghIssue.getCreatedAt());
+			backport.setUpdatedAt(ghIssue.getUpdatedAt());
+			backport.getLabels().addAll(ghIssue.getLabels());
+			backport.getLabels().add("Backport");
+			importedIssue.setBackport(backport);
+		}
+		return importedIssue;
+	}
+
+	/**
+	 * Imports the issue immediately followed by its backports, so the numbers
+	 * GitHub assigns are predicted from the order of the imports. This allows the
+	 * backports (and any links) to refer to the issue without waiting for the
+	 * import to finish. The predictions are checked once every issue is
+	 * imported.
+	 */
+	private ImportedIssue importWithBackports(Map<String, GithubMilestone> nameToMilestone, PreparedIssue prepared) throws IOException {
+		JiraIssue issue = prepared.getIssue();
+		List<JiraFixVersion> backportVersions = prepared.getBackportVersions();
+		List<Integer> backportMilestones = new ArrayList<>();
+		for(JiraFixVersion version : backportVersions) {
+			backportMilestones.add(getMilestoneNumber(nameToMilestone, version.getName()));
+		}
+
+		ImportedIssue importedIssue;
+		synchronized (predictionLock) {
+			int issueNumber = nextIssueNumber;
+			ImportGithubIssueResponse importResponse = importIssue(prepared.getBody());
+			nextIssueNumber++;
+			journal.imported(issue.getKey(), importResponse.getUrl(), issueNumber, getCommentedUntil(issue), prepared.getGhIssue().getLabels());
+
+			importedIssue = createImportedIssue(issue, importResponse.getUrl(), backportVersions, prepared.getGhIssue());
+			for(int i = 0; i < backportMilestones.size(); i++) {
+				GithubIssue backport = importedIssue.getBackport();
+				backport.setMilestone(backportMilestones.get(i));
+				backport.setBody("Backported #" + issueNumber);
+				String backportImportUrl = importIssue(backport).getUrl();
+				nextIssueNumber++;
+				journal.backported(issue.getKey(), backportVersions.get(i).getName(), backportImportUrl, issueNumber);
+			}
+		}
+		if(!backportVersions.isEmpty()) {
+			journal.completed(issue.getKey(), Phase.BACKPORTED);
+		}
+		return importedIssue;
+	}
+
+	/**
+	 * Compares the predicted issue numbers to the ones GitHub assigned and posts
+	 * a correction on every issue that referred to an issue by the wrong number.
+	 * The predictions, links and backports are read from the journal, so the
+	 * issues a previous migration predicted are verified too.
+	 */
+	private void verifyPredictedIssueNumbers() throws IOException, InterruptedException {
+		List<String> toVerify = importedIssues.getKeys().stream()
+				.filter(key -> journal.get(key).getPredictedIssueNumber() != null)
+				.filter(key -> !journal.isCompleted(key, Phase.VERIFIED))
+				.collect(Collectors.toList());
+		if(toVerify.isEmpty()) {
+			return;
+		}
+		int wrong = 0;
+		for(String key : toVerify) {
+			if(journal.get(key).getPredictedIssueNumber() != getImportedIssueNumber(importedIssues.get(key))) {
+				wrong++;
+			}
+		}
+		metrics.counter("github.predictions.wrong").inc(wrong);
+		if(wrong == 0) {
+			System.out.println("All " + toVerify.size() + " predicted issue numbers were correct");
+		} else {
+			System.out.println(wrong + " of " + toVerify.size() + " predicted issue numbers were wrong. Posting corrections.");
+		}
+
+		for(String key : toVerify) {
+			MigrationJournal.Entry entry = journal.get(key);
+			int actual = getImportedIssueNumber(importedIssues.get(key));
+			List<String> corrections = new ArrayList<>();
+			for(Map.Entry<String, Integer> linked : entry.getLinkedIssueNumbers().entrySet()) {
+				if(!importedIssues.contains(linked.getKey())) {
+					continue;
+				}
+				int linkedActual = getImportedIssueNumber(importedIssues.get(linked.getKey()));
+				if(linkedActual != linked.getValue()) {
+					corrections.add(createCorrection(linked.getKey(), linked.getValue(), linkedActual));
+				}
+			}
+			if(!corrections.isEmpty()) {
+				createComment(actual, createCorrectionComment(corrections));
+			}
+
+			for(MigrationJournal.Backport backport : entry.getBackports().values()) {
+				if(backport.getReferencedIssueNumber() != actual) {
+					int backportNumber = await(importStatusResolver.resolve(backport.getImportUrl()));
+					createComment(backportNumber, createCorrectionComment(Collections.singletonList(createCorrection(key, backport.getReferencedIssueNumber(), actual))));
+				}
+			}
+			journal.completed(key, Phase.VERIFIED);
+		}
+	}
+
+	private static String createCorrection(String jiraKey, int predicted, int actual) {
+		return "* #" + predicted + " should be #" + actual + " (" + jiraKey + ")";
+	}
+
+	private static String createCorrectionComment(List<String> corrections) {
+		return "The issue numbers above were assigned before the issues were migrated and some are wrong:\n\n"
+				+ String.join("\n", corrections);
+	}
+
+	/**
+	 * True if the repository has any issues or pull requests. The numbers are
+	 * only predicted for an empty repository, since imported issues keep the
+	 * created time of JIRA, so no listing finds the highest number in use.
+	 */
+	private boolean hasIssues() {
+		URI uri = repositoryUri("issues")
+				.queryParam("state", "all")
+				.queryParam("per_page", 1)
 				.build()
 				.toUri();
-		BodyBuilder request = RequestEntity.post(uri)
-				.accept(new MediaType("application", "vnd.github.golden-comet-preview+json"))
-				.header("Authorization", "token " + getAccessToken());
+		RepositoryIssue[] issues = rest.exchange(RequestEntity.get(uri).accept(MediaType.APPLICATION_JSON).build(), RepositoryIssue[].class).getBody();
+		return issues.length > 0;
+	}
 
-		ResponseEntity<ImportGithubIssueResponse> result = rest.exchange(request.body(importIssue), ImportGithubIssueResponse.class);
-		result.getBody().setImportIssue(importIssue);
-		return result;
+	/**
+	 * Creates the {@link ImportedIssue} for an issue that the journal shows was
+	 * imported by a previous migration.
+	 */
+	private ImportedIssue resumeImportedIssue(JiraIssue issue) {
+		MigrationJournal.Entry entry = journal.get(issue.getKey());
+		List<JiraFixVersion> backportVersions = getBackportVersions(JiraFixVersion.sort(issue.getFields().getFixVersions()));
+		// the backports only need the milestone of the backport version
+		GithubIssue ghIssue = backportVersions.isEmpty() ? null : createGithubIssue(Collections.emptyMap(), issue, null);
+		ImportedIssue importedIssue = createImportedIssue(issue, entry.getImportUrl(), backportVersions, ghIssue);
+		if(entry.getIssueNumber() == null) {
+			resolveIssueNumber(importedIssue);
+		} else {
+			importedIssues.setIssueNumber(issue.getKey(), entry.getIssueNumber());
+		}
+		return importedIssue;
 	}
 
-	private ImportGithubIssue createImportIssue(Map<String, Milestone> nameToMilestone, JiraIssue issue, JiraFixVersion version) {
-		ImportGithubIssue importIssue = new ImportGithubIssue();
+	/**
+	 * Posts the comments that were added in JIRA since the last sync and updates
+	 * the state and labels of an issue that was already migrated. The backports
+	 * are left as they are.
+	 */
+	private ImportedIssue syncIssue(JiraIssue issue) throws IOException, InterruptedException {
+		ImportedIssue importedIssue = resumeImportedIssue(issue);
+		int issueNumber = getImportedIssueNumber(importedIssue);
+		MigrationJournal.Entry entry = journal.get(issue.getKey());
+		DateTime commentedUntil = entry.getCommentedUntil();
+		List<JiraComment> comments = new ArrayList<>(issue.getFields().getComment().getComments());
+		comments.sort(Comparator.comparing(JiraComment::getCreated));
+		for(JiraComment comment : comments) {
+			DateTime created = comment.getCreated();
+			boolean posted = commentedUntil == null ? created.isBefore(syncSince) : !created.isAfter(commentedUntil);
+			if(!posted) {
+				createComment(issueNumber, createComment(comment).getBody());
+				// one at a time, so a sync that dies does not post the comment again
+				journal.commented(issue.getKey(), created);
+				metrics.counter("github.sync.comments").inc();
+			}
+		}
+		DateTime updated = getCommentedUntil(issue);
+		if(updated != null) {
+			journal.commented(issue.getKey(), updated);
+		}
 
-		GithubIssue ghIssue = createGithubIssue(nameToMilestone, issue, version);
+		URI uri = repositoryUri("issues").pathSegment(String.valueOf(issueNumber)).build().toUri();
+		RepositoryIssue existing = rest.exchange(RequestEntity.get(uri).accept(MediaType.APPLICATION_JSON).build(), RepositoryIssue.class).getBody();
+		String state = issue.getFields().getResolution() == null ? "open" : "closed";
+		if(!state.equals(existing.getState())) {
+			rest.exchange(RequestEntity.patch(uri).accept(MediaType.APPLICATION_JSON).body(Collections.singletonMap("state", state)), Void.class);
+			metrics.counter("github.sync.updated").inc();
+		}
 
-		List<GithubComment> comments = createComments(issue);
+		// only the labels the migration applied are removed, so labels added on GitHub are kept
+		Set<String> labels = new LinkedHashSet<>(getLabels(issue));
+		Set<String> existingLabels = existing.getLabels().stream().map(GithubLabel::getName).collect(Collectors.toSet());
+		List<String> added = labels.stream().filter(label -> !existingLabels.contains(label)).collect(Collectors.toList());
+		List<String> removed = entry.getLabels().stream()
+				.filter(label -> !labels.contains(label) && existingLabels.contains(label))
+				.collect(Collectors.toList());
+		if(!added.isEmpty()) {
+			URI labelsUri = repositoryUri("issues").pathSegment(String.valueOf(issueNumber), "labels").build().encode().toUri();
+			rest.exchange(RequestEntity.post(labelsUri).accept(MediaType.APPLICATION_JSON).body(added), Void.class);
+		}
+		for(String label : removed) {
+			URI labelUri = repositoryUri("issues").pathSegment(String.valueOf(issueNumber), "labels", label).build().encode().toUri();
+			rest.exchange(RequestEntity.delete(labelUri).accept(MediaType.APPLICATION_JSON).build(), Void.class);
+		}
+		if(!added.isEmpty() || !removed.isEmpty()) {
+			metrics.counter("github.sync.labeled").inc();
+		}
+		if(!labels.equals(entry.getLabels())) {
+			journal.labeled(issue.getKey(), labels);
+		}
+		return importedIssue;
+	}
+
+	/**
+	 * The time up to which the JIRA comments of the issue are known. Every
+	 * comment bumps the updated time of the issue, so any comment that is not
+	 * in the issue yet is created after it.
+	 */
+	private static DateTime getCommentedUntil(JiraIssue issue) {
+		DateTime commentedUntil = issue.getFields().getUpdated();
+		for(JiraComment comment : issue.getFields().getComment().getComments()) {
+			if(commentedUntil == null || comment.getCreated().isAfter(commentedUntil)) {
+				commentedUntil = comment.getCreated();
+			}
+		}
+		return commentedUntil;
+	}
+
+	private static List<JiraFixVersion> getBackportVersions(List<JiraFixVersion> sortedFixVersions) {
+		return sortedFixVersions.size() <= 1 ? Collections.emptyList() : sortedFixVersions.subList(1, sortedFixVersions.size());
+	}
+
+	/**
+	 * Imports the issue without comments.
+	 */
+	private ImportGithubIssueResponse importIssue(GithubIssue issue) throws IOException {
+		ByteArrayOutputStream body = new ByteArrayOutputStream(8192);
+		writeImportIssue(body, issue, Collections.emptyList());
+		return importIssue(body.toByteArray());
+	}
+
+	/**
+	 * @param importIssue the JSON of an {@link ImportGithubIssue} (see
+	 * {@link #writeImportIssue(OutputStream, GithubIssue, List)})
+	 */
+	private ImportGithubIssueResponse importIssue(byte[] importIssue) {
+		URI uri = UriComponentsBuilder
+				.fromUriString(getRepositoryUrl())
+				.pathSegment("import", "issues")
+				.build()
+				.toUri();
+		RequestEntity.BodyBuilder request = RequestEntity.post(uri)
+				.accept(IMPORT_MEDIA_TYPE)
+				.contentType(MediaType.APPLICATION_JSON);
+		if(config.isCompressRequests()) {
+			request.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+		}
+		return rest.exchange(request.body(importIssue), ImportGithubIssueResponse.class).getBody();
+	}
 
-		importIssue.setIssue(ghIssue);
-		importIssue.setComments(comments);
-		return importIssue;
+	/**
+	 * Writes the same JSON as an {@link ImportGithubIssue}, gzipped if
+	 * {@link GithubConfig#isCompressRequests()}.
+	 */
+	void writeImportIssue(OutputStream body, GithubIssue issue, List<GithubComment> comments) throws IOException {
+		GZIPOutputStream gzip = config.isCompressRequests() ? new GZIPOutputStream(body, 8192) : null;
+		try (JsonGenerator json = JSON.getFactory().createGenerator(gzip == null ? body : gzip)) {
+			json.writeStartObject();
+			json.writeObjectField("issue", issue);
+			json.writeArrayFieldStart("comments");
+			for (GithubComment comment : comments) {
+				json.writeObject(comment);
+			}
+			json.writeEndArray();
+			json.writeEndObject();
+		}
+		if(gzip != null) {
+			gzip.finish();
+		}
 	}
 
-	private GithubIssue createGithubIssue(Map<String, Milestone> nameToMilestone, JiraIssue issue, JiraFixVersion fixVersion) {
+	GithubIssue createGithubIssue(Map<String, GithubMilestone> nameToMilestone, JiraIssue issue, JiraFixVersion fixVersion) {
 		Fields fields = issue.getFields();
 		boolean closed = fields.getResolution() != null;
 		DateTime updated = fields.getUpdated();
@@ -419,56 +1236,70 @@ public class GithubClient {
 		ghIssue.setUpdatedAt(updated);
 
 		if (fixVersion != null) {
-			Milestone m = nameToMilestone.get(fixVersion.getName());
-			if(m == null) {
-				throw new IllegalStateException("Could not map fix version "+fixVersion.getName() + " to a github milestone. Available options are "+nameToMilestone.keySet());
-			}
-			ghIssue.setMilestone(m.getNumber());
+			ghIssue.setMilestone(getMilestoneNumber(nameToMilestone, fixVersion.getName()));
 		}
 
-		List<String> componentNames = fields.getComponents().stream()
+		ghIssue.getLabels().addAll(getLabels(issue));
+		return ghIssue;
+	}
+
+	private static int getMilestoneNumber(Map<String, GithubMilestone> nameToMilestone, String fixVersion) {
+		GithubMilestone m = nameToMilestone.get(fixVersion);
+		if(m == null) {
+			throw new IllegalStateException("Could not map fix version "+fixVersion + " to a github milestone. Available options are "+nameToMilestone.keySet());
+		}
+		return m.getNumber();
+	}
+
+	/**
+	 * The labels of the issue: the components, the status, the issue type and
+	 * the resolution of the issue, and "Jira".
+	 */
+	private static List<String> getLabels(JiraIssue issue) {
+		Fields fields = issue.getFields();
+		List<String> labels = fields.getComponents().stream()
 			.map(JiraComponent::getName)
 			.collect(Collectors.toList());
-		ghIssue.getLabels().addAll(componentNames);
 
 		JiraStatus status = fields.getStatus();
 		if(status != null) {
-			ghIssue.getLabels().add(status.getName());
+			labels.add(status.getName());
 		}
 
 		JiraIssueType issueType = fields.getIssuetype();
 		if(issueType != null) {
-			ghIssue.getLabels().add(issueType.getName());
+			labels.add(issueType.getName());
 		}
 
 		JiraResolution jiraResolution = fields.getResolution();
 		if(jiraResolution != null) {
-			ghIssue.getLabels().add(jiraResolution.getName());
+			labels.add(jiraResolution.getName());
 		}
-		ghIssue.getLabels().add("Jira");
-
-		return ghIssue;
+		labels.add("Jira");
+		return labels;
 	}
 
-	private List<GithubComment> createComments(JiraIssue issue) {
-		Fields fields = issue.getFields();
-		List<GithubComment> comments = new ArrayList<>();
-		for (JiraComment jiraComment : fields.getComment().getComments()) {
-			GithubComment comment = new GithubComment();
-			MarkupEngine engine = markup.engine(jiraComment.getCreated());
-
-			String userUrl = jiraComment.getAuthor().getBrowserUrl();
-			String body = engine.link(jiraComment.getAuthor().getDisplayName(), userUrl) + " said:\n\n";
-			body += engine.convert(jiraComment.getBody());
-			comment.setBody(body);
-			comment.setCreatedAt(jiraComment.getCreated());
-			comments.add(comment);
-		}
-		return comments;
+	/**
+	 * Converts the comments of the issue. Issues with many comments are
+	 * converted in parallel, which uses the idle threads of the conversion
+	 * stage when called from it.
+	 */
+	List<GithubComment> createComments(JiraIssue issue) {
+		List<JiraComment> jiraComments = issue.getFields().getComment().getComments();
+		Stream<JiraComment> comments = jiraComments.size() < PARALLEL_COMMENTS ? jiraComments.stream() : jiraComments.parallelStream();
+		return comments.map(this::createComment).collect(Collectors.toCollection(ArrayList::new));
 	}
 
-	private IRepositoryIdProvider createRepositoryId() {
-		return RepositoryId.createFromId(getRepositorySlug());
+	private GithubComment createComment(JiraComment jiraComment) {
+		GithubComment comment = new GithubComment();
+		MarkupEngine engine = markup.engine(jiraComment.getCreated());
+
+		String userUrl = jiraComment.getAuthor().getBrowserUrl();
+		String body = engine.link(jiraComment.getAuthor().getDisplayName(), userUrl) + " said:\n\n";
+		body += engine.convert(jiraComment.getBody());
+		comment.setBody(body);
+		comment.setCreatedAt(jiraComment.getCreated());
+		return comment;
 	}
 
 	private String getRepositorySlug() {
@@ -479,52 +1310,100 @@ public class GithubClient {
 		return config.isDeleteCreateRepositorySlug();
 	}
 
-	private GitHubClient client() {
-
-		GitHubClient githubClient = new GitHubClient() {
-
-			@Override
-			protected HttpURLConnection configureRequest(HttpURLConnection request) {
-				HttpURLConnection result = super.configureRequest(request);
-				result.setRequestProperty(HEADER_ACCEPT, MediaType.APPLICATION_JSON_VALUE);
-				return result;
-			}
-
-		};
-		githubClient.setOAuth2Token(getAccessToken());
-		return githubClient;
-	}
-
 	private String getAccessToken() {
 		return config.getAccessToken();
 	}
 
+	@Data
+	@JsonIgnoreProperties(ignoreUnknown = true)
+	static class RepositoryIssue {
+		int number;
+		String state;
+		List<GithubLabel> labels = new ArrayList<>();
+	}
+
 	@Data
 	@JsonIgnoreProperties(ignoreUnknown = true)
 	static class ImportStatusResponse {
 		@JsonProperty("issue_url")
 		String issueUrl;
+		String status;
+		List<ImportGithubIssueResponse.Error> errors;
+
+		public boolean isFailed() {
+			return "failed".equals(status);
+		}
 	}
 
+	/**
+	 * What is kept of an issue once it is imported: just enough to create its
+	 * backports and links. These are kept in an {@link ImportedIssueStore}.
+	 */
 	@Data
-	@RequiredArgsConstructor
 	static class ImportedIssue {
+		String key;
+		String importUrl;
+
 		/**
-		 * The GitHub issue number (may be null). This is filled out after the
-		 * importResponse is post processed.
+		 * The links to other JIRA issues.
 		 */
-		Integer issueNumber;
-		final JiraIssue jiraIssue;
-		final ImportGithubIssueResponse importResponse;
-		final List<JiraFixVersion> backportVersions;
+		List<OutwardLink> outwardLinks = Collections.emptyList();
+
+		/**
+		 * The names of the fix versions other than the first.
+		 */
+		List<String> backportVersions = Collections.emptyList();
+
+		/**
+		 * The backport of the issue without a body or milestone, or null if there
+		 * are no backportVersions.
+		 */
+		GithubIssue backport;
+	}
+
+	@Data
+	@NoArgsConstructor
+	@AllArgsConstructor
+	static class OutwardLink {
+		String key;
 
+		/**
+		 * How this issue relates to the linked issue (i.e. "relates to").
+		 */
+		String text;
 	}
 
+	/**
+	 * An issue that is converted and waiting to be imported.
+	 */
+	@Data
+	@RequiredArgsConstructor
+	static class PreparedIssue {
+		final JiraIssue issue;
+
+		/**
+		 * The converted issue without its body, which is only in the written body.
+		 */
+		final GithubIssue ghIssue;
+
+		final List<JiraFixVersion> backportVersions;
+
+		/**
+		 * The body of the import (see
+		 * {@link GithubClient#writeImportIssue(OutputStream, GithubIssue, List)}).
+		 */
+		final byte[] body;
+
+		/**
+		 * The issue numbers used by the links that are imported with the issue or
+		 * null if the links are created later.
+		 */
+		Map<String, Integer> linkedIssueNumbers;
+	}
 
 	@JsonIgnoreProperties(ignoreUnknown = true)
 	@Data
 	static class ImportGithubIssueResponse {
-		ImportGithubIssue importIssue;
 		String url;
 		String status;
 		List<Error> errors;
@@ -15,6 +15,9 @@
  */
 package io.pivotal.github;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
@@ -37,6 +40,12 @@ public class GithubConfig {
 	 */
 	String repositorySlug;
 
+	/**
+	 * The base url of the GitHub API. For GitHub Enterprise this is something
+	 * like "https://github.example.com/api/v3".
+	 */
+	String apiUrl = "https://api.github.com";
+
 	/**
 	 * The OAuth Access Token used to perform the migration. Visit
 	 * https://github.com/settings/tokens
@@ -45,6 +54,15 @@ public class GithubConfig {
 	 */
 	String accessToken;
 
+	/**
+	 * (Optional) more OAuth Access Tokens. GitHub rate limits each token
+	 * separately, so the imports, import status checks and comments are spread
+	 * over all of the tokens, using the token with the most remaining quota. The
+	 * {@link #getAccessToken()} is still used to create and delete the
+	 * repository. Each token must be able to push to the repository.
+	 */
+	List<String> additionalAccessTokens = new ArrayList<>();
+
 	/**
 	 * <p>
 	 * If set, the migration script will attempt to delete / create a GitHub
@@ -57,4 +75,74 @@ public class GithubConfig {
 	 * </p>
 	 */
 	boolean deleteCreateRepositorySlug;
+
+	/**
+	 * The number of issues that are submitted to GitHub's import API
+	 * concurrently. The missing milestones and labels are also created with this
+	 * many threads. The default is 1 which imports the issues one at a time.
+	 */
+	int importThreads = 1;
+
+	/**
+	 * The number of pending imports whose status is polled concurrently while
+	 * waiting for GitHub to assign the issue numbers.
+	 */
+	int importStatusThreads = 4;
+
+	/**
+	 * The number of threads that convert the issues to import. Converting runs
+	 * ahead of the import threads, so the time spent converting large issues
+	 * overlaps the time spent waiting on GitHub.
+	 */
+	int conversionThreads = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * The number of issues that may be converted ahead of the import threads.
+	 */
+	int conversionQueueSize = 16;
+
+	/**
+	 * The maximum number of requests per second sent to GitHub. GitHub has
+	 * secondary (abuse) rate limits that are not reported in any header, so the
+	 * requests are paced to stay under them. If 0, only the rate limits reported
+	 * by GitHub are used.
+	 */
+	double requestsPerSecond = 10;
+
+	/**
+	 * The maximum number of requests per second that create or change content on
+	 * GitHub (imports, comments, labels and so on). GitHub asks for about one
+	 * second between these, and its secondary rate limits are much stricter for
+	 * them than for reads. They also count towards
+	 * {@link #getRequestsPerSecond()}. If 0, they are only paced like the other
+	 * requests.
+	 */
+	double writesPerSecond = 1;
+
+	/**
+	 * True if the bodies of the import requests are gzipped. GitHub does not
+	 * document accepting compressed requests, so this is only useful for servers
+	 * (or proxies) known to support it. The default is false.
+	 */
+	boolean compressRequests;
+
+	/**
+	 * True if the issue numbers GitHub assigns are predicted from the order the
+	 * issues are imported in. The backports and links can then refer to an issue
+	 * without waiting for GitHub to finish importing it. The imports are sent one
+	 * at a time to keep their order, and any wrong prediction is corrected with a
+	 * comment once everything is imported. Only use this when nothing else
+	 * creates issues or pull requests in the repository during the migration.
+	 * The numbers are not predicted if the repository already has issues or pull
+	 * requests.
+	 */
+	boolean predictIssueNumbers;
+
+	/**
+	 * (Optional) the file used to journal the progress of the migration. If the
+	 * file already contains entries, the migration is resumed: the repository is
+	 * not deleted / created again and issues that were already imported,
+	 * backported or linked are skipped.
+	 */
+	String journal;
 }
@@ -0,0 +1,299 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pivotal.github;
+
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.joda.time.DateTime;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+
+import lombok.Data;
+
+/**
+ * Paces the requests sent to GitHub so they stay within the rate limits rather
+ * than waiting for GitHub to reject them. GitHub rate limits each token
+ * separately, so the {@link GithubTokenPool} has a governor for each token that
+ * is shared by every thread sending requests with that token.
+ *
+ * <p>
+ * The X-RateLimit-Remaining and X-RateLimit-Reset of every response are
+ * tracked, so once only {@link #RATE_LIMIT_RESERVE} requests remain the
+ * requests wait for the reset instead of being rejected. The requests are also
+ * kept under requestsPerSecond, and the requests that create or change content
+ * (anything but GET and HEAD) under the much lower writesPerSecond, since
+ * GitHub has secondary (abuse) rate limits that are not reported in any
+ * header. If GitHub rejects a request anyway, all requests with the token are
+ * paused for the Retry-After (in seconds or an HTTP-date), until the reset or
+ * for an abuse backoff that doubles up to {@link #MAX_ABUSE_BACKOFF_MILLIS}.
+ * The backoff is also used if the Retry-After or X-RateLimit-Reset cannot be
+ * parsed.
+ * </p>
+ *
+ * @author Rob Winch
+ *
+ */
+public class GithubRateGovernor {
+	/**
+	 * Once the X-RateLimit-Remaining drops to this value, requests wait for
+	 * X-RateLimit-Reset. This leaves headroom for requests that are already in
+	 * flight on other threads.
+	 */
+	static final int RATE_LIMIT_RESERVE = 10;
+
+	static final long INITIAL_ABUSE_BACKOFF_MILLIS = TimeUnit.SECONDS.toMillis(45);
+
+	static final long MAX_ABUSE_BACKOFF_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+	private final LongSupplier clock;
+
+	private double requestsPerSecond;
+
+	private double writesPerSecond;
+
+	/**
+	 * The requests remaining until resetMillis or -1 if unknown.
+	 */
+	private int remaining = -1;
+
+	private long resetMillis;
+
+	private long nextRequestMillis;
+
+	private long nextWriteMillis;
+
+	private long pausedUntilMillis;
+
+	private long abuseBackoffMillis = INITIAL_ABUSE_BACKOFF_MILLIS;
+
+	private long sleptMillis;
+
+	private int rejected;
+
+	public GithubRateGovernor() {
+		this(System::currentTimeMillis);
+	}
+
+	GithubRateGovernor(LongSupplier clock) {
+		this.clock = clock;
+	}
+
+	/**
+	 * The maximum number of requests per second. If 0, only the rate limits
+	 * reported by GitHub are used.
+	 */
+	public synchronized void setRequestsPerSecond(double requestsPerSecond) {
+		this.requestsPerSecond = requestsPerSecond;
+	}
+
+	/**
+	 * The maximum number of requests per second that create or change content.
+	 * These also count towards {@link #setRequestsPerSecond(double)}. If 0, they
+	 * are only paced like the other requests.
+	 */
+	public synchronized void setWritesPerSecond(double writesPerSecond) {
+		this.writesPerSecond = writesPerSecond;
+	}
+
+	/**
+	 * Blocks until the next request may be sent.
+	 *
+	 * @param write true if the request creates or changes content
+	 * @return the number of milliseconds that were spent waiting
+	 */
+	public long acquire(boolean write) throws InterruptedException {
+		long wait = reserve(write);
+		if(wait > 0) {
+			synchronized (this) {
+				sleptMillis += wait;
+			}
+			Thread.sleep(wait);
+		}
+		return Math.max(wait, 0);
+	}
+
+	/**
+	 * Reserves the next slot for a request and returns how long to wait for it.
+	 */
+	synchronized long reserve(boolean write) {
+		long now = clock.getAsLong();
+		long start = Math.max(now, Math.max(pausedUntilMillis, nextRequestMillis));
+		if(write) {
+			start = Math.max(start, nextWriteMillis);
+		}
+		if(remaining >= 0 && start >= resetMillis) {
+			// a new window, so the budget is unknown until the next response
+			remaining = -1;
+		}
+		if(remaining >= 0 && remaining <= RATE_LIMIT_RESERVE) {
+			start = resetMillis;
+			remaining = -1;
+		}
+		if(remaining > RATE_LIMIT_RESERVE) {
+			// count the request now, so concurrent threads do not all spend the reserve
+			remaining--;
+		}
+		nextRequestMillis = start + interval(requestsPerSecond);
+		if(write) {
+			nextWriteMillis = start + interval(writesPerSecond);
+		}
+		return start - now;
+	}
+
+	/**
+	 * Updates the budget from the headers of a response.
+	 */
+	public synchronized void update(HttpHeaders headers) {
+		String remainingHeader = headers.getFirst("X-RateLimit-Remaining");
+		String resetHeader = headers.getFirst("X-RateLimit-Reset");
+		if(remainingHeader == null || resetHeader == null) {
+			return;
+		}
+		long reset;
+		int remaining;
+		try {
+			reset = TimeUnit.SECONDS.toMillis(Long.parseLong(resetHeader.trim()));
+			remaining = Integer.parseInt(remainingHeader.trim());
+		} catch(NumberFormatException e) {
+			// not worth failing the request over, the budget is just not known
+			return;
+		}
+		if(reset == resetMillis && this.remaining >= 0) {
+			// responses can arrive out of order, so within a window the lowest count wins
+			this.remaining = Math.min(this.remaining, remaining);
+		} else if(reset > resetMillis) {
+			this.resetMillis = reset;
+			this.remaining = remaining;
+		}
+	}
+
+	/**
+	 * Signals that a request succeeded, so the next abuse rate limit starts with
+	 * the initial backoff again.
+	 */
+	public synchronized void succeeded() {
+		abuseBackoffMillis = INITIAL_ABUSE_BACKOFF_MILLIS;
+	}
+
+	/**
+	 * Pauses the requests if GitHub rejected a request because of a rate limit.
+	 *
+	 * @return true if the request was rejected because of a rate limit and should
+	 * be retried
+	 */
+	public synchronized boolean rejected(HttpStatus status, HttpHeaders headers, String body) {
+		if(status != HttpStatus.FORBIDDEN && status != HttpStatus.TOO_MANY_REQUESTS) {
+			return false;
+		}
+		long now = clock.getAsLong();
+		String retryAfter = headers.getFirst("Retry-After");
+		boolean exceeded = "0".equals(headers.getFirst("X-RateLimit-Remaining"));
+		long retryAfterMillis = parseRetryAfter(retryAfter, now);
+		if(exceeded) {
+			update(headers);
+		}
+		if(retryAfterMillis >= 0) {
+			pause(retryAfterMillis, "Retry-After");
+		} else if(exceeded && resetMillis > now) {
+			pause(resetMillis, "X-RateLimit-Reset");
+		} else if(retryAfter != null || exceeded || isAbuseRateLimit(body)) {
+			pause(now + abuseBackoffMillis, "a rate limit with no usable Retry-After");
+			abuseBackoffMillis = Math.min(abuseBackoffMillis * 2, MAX_ABUSE_BACKOFF_MILLIS);
+		} else {
+			return false;
+		}
+		rejected++;
+		return true;
+	}
+
+	public synchronized Budget getBudget() {
+		Budget budget = new Budget();
+		budget.setRemaining(remaining);
+		budget.setResetMillis(resetMillis);
+		budget.setPausedUntilMillis(pausedUntilMillis);
+		budget.setSleptMillis(sleptMillis);
+		budget.setRejected(rejected);
+		return budget;
+	}
+
+	private void pause(long untilMillis, String reason) {
+		if(untilMillis > pausedUntilMillis) {
+			pausedUntilMillis = untilMillis;
+			System.out.println("Received " + reason + ". Pausing requests to GitHub until " + new DateTime(untilMillis));
+		}
+	}
+
+	private static long interval(double perSecond) {
+		return perSecond > 0 ? (long) (1000 / perSecond) : 0;
+	}
+
+	/**
+	 * The time the Retry-After asks to wait until, which is either a number of
+	 * seconds or an HTTP-date, or -1 if it is missing or cannot be parsed.
+	 */
+	static long parseRetryAfter(String retryAfter, long now) {
+		if(retryAfter == null) {
+			return -1;
+		}
+		String value = retryAfter.trim();
+		try {
+			return now + TimeUnit.SECONDS.toMillis(Long.parseLong(value));
+		} catch(NumberFormatException e) {
+			// not seconds, so it should be an HTTP-date
+		}
+		try {
+			return ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+		} catch(DateTimeParseException e) {
+			return -1;
+		}
+	}
+
+	private static boolean isAbuseRateLimit(String body) {
+		return body != null && (body.contains("#abuse-rate-limits") || body.contains("secondary rate limit"));
+	}
+
+	/**
+	 * A snapshot of the rate limit budget.
+	 */
+	@Data
+	public static class Budget {
+		/**
+		 * The requests remaining until the reset or -1 if unknown.
+		 */
+		int remaining;
+
+		long resetMillis;
+
+		/**
+		 * If in the future, all requests are paused until then.
+		 */
+		long pausedUntilMillis;
+
+		/**
+		 * The total time threads spent waiting for the governor.
+		 */
+		long sleptMillis;
+
+		/**
+		 * The number of requests GitHub rejected because of a rate limit.
+		 */
+		int rejected;
+	}
+}
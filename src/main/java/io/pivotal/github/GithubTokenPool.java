@@ -0,0 +1,139 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pivotal.github;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+import lombok.Data;
+
+/**
+ * The access tokens used to talk to GitHub, each with its own
+ * {@link GithubRateGovernor} since GitHub rate limits each token separately.
+ * Requests that may use any token are routed to the token with the most
+ * remaining quota, so the migration is not limited by the quota of a single
+ * token.
+ *
+ * @author Rob Winch
+ *
+ */
+public class GithubTokenPool {
+	private final List<Token> tokens;
+
+	private final LongSupplier clock;
+
+	/**
+	 * @param accessTokens the tokens to use. The first is the primary token.
+	 * @param requestsPerSecond the pacing of each token, see
+	 * {@link GithubRateGovernor#setRequestsPerSecond(double)}
+	 * @param writesPerSecond the pacing of the writes of each token, see
+	 * {@link GithubRateGovernor#setWritesPerSecond(double)}
+	 */
+	public GithubTokenPool(List<String> accessTokens, double requestsPerSecond, double writesPerSecond) {
+		this(accessTokens, requestsPerSecond, writesPerSecond, System::currentTimeMillis);
+	}
+
+	GithubTokenPool(List<String> accessTokens, double requestsPerSecond, double writesPerSecond, LongSupplier clock) {
+		if(accessTokens.isEmpty()) {
+			throw new IllegalArgumentException("At least one access token is required");
+		}
+		this.clock = clock;
+		List<Token> tokens = new ArrayList<>();
+		for(String accessToken : accessTokens) {
+			GithubRateGovernor rateGovernor = new GithubRateGovernor(clock);
+			rateGovernor.setRequestsPerSecond(requestsPerSecond);
+			rateGovernor.setWritesPerSecond(writesPerSecond);
+			tokens.add(new Token(accessToken, rateGovernor));
+		}
+		this.tokens = Collections.unmodifiableList(tokens);
+	}
+
+	public List<Token> getTokens() {
+		return tokens;
+	}
+
+	/**
+	 * The token used for requests that must be made as the owner of the
+	 * repository (i.e. creating or deleting it).
+	 */
+	public Token primary() {
+		return tokens.get(0);
+	}
+
+	/**
+	 * The token with the access token or null if it is not in the pool.
+	 */
+	public Token get(String accessToken) {
+		for(Token token : tokens) {
+			if(token.getAccessToken().equals(accessToken)) {
+				return token;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Selects the token with the most remaining quota. Tokens that are paused or
+	 * used up are only selected if every token is, in which case the one that
+	 * can be used again soonest is selected.
+	 */
+	public Token select() {
+		long now = clock.getAsLong();
+		Token selected = null;
+		long selectedScore = Long.MIN_VALUE;
+		for(Token token : tokens) {
+			long score = score(token.getRateGovernor().getBudget(), now);
+			if(score > selectedScore) {
+				selected = token;
+				selectedScore = score;
+			}
+		}
+		return selected;
+	}
+
+	/**
+	 * The remaining quota of a token that can be used now, or the negated time
+	 * until it can be used again.
+	 */
+	private static long score(GithubRateGovernor.Budget budget, long now) {
+		if(budget.getPausedUntilMillis() > now) {
+			return -(budget.getPausedUntilMillis() - now);
+		}
+		if(budget.getRemaining() < 0) {
+			// unknown until the token is used, so try it
+			return Integer.MAX_VALUE;
+		}
+		if(budget.getRemaining() <= GithubRateGovernor.RATE_LIMIT_RESERVE) {
+			return -Math.max(budget.getResetMillis() - now, 1);
+		}
+		return budget.getRemaining();
+	}
+
+	@Data
+	public static class Token {
+		final String accessToken;
+
+		final GithubRateGovernor rateGovernor;
+
+		@Override
+		public String toString() {
+			// do not log the access token
+			return "Token" + rateGovernor.getBudget();
+		}
+	}
+}
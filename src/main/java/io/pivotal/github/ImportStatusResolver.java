@@ -0,0 +1,142 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pivotal.github;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import io.pivotal.github.GithubClient.ImportStatusResponse;
+
+/**
+ * Resolves the GitHub issue numbers of issues that were submitted to the import
+ * API. Every outstanding import is polled in the background with its own
+ * backoff, so a single slow import does not hold up the others. Server errors
+ * and I/O errors while polling are retried with the same backoff, up to
+ * {@link #MAX_FAILURES} in a row.
+ *
+ * @author Rob Winch
+ *
+ */
+class ImportStatusResolver implements AutoCloseable {
+	static final long INITIAL_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(1);
+
+	static final long MAX_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(60);
+
+	/**
+	 * The number of consecutive transient failures (server errors or I/O errors)
+	 * after which an import is given up on.
+	 */
+	static final int MAX_FAILURES = 5;
+
+	private final Function<String, ImportStatusResponse> lookup;
+
+	private final ScheduledExecutorService scheduler;
+
+	private final long initialDelayMillis;
+
+	private final long maxDelayMillis;
+
+	private final Map<String, CompletableFuture<Integer>> outstanding = new ConcurrentHashMap<>();
+
+	/**
+	 * @param lookup looks up the status of an import given its url
+	 * @param threads the number of imports to poll concurrently
+	 */
+	ImportStatusResolver(Function<String, ImportStatusResponse> lookup, int threads) {
+		this(lookup, threads, INITIAL_DELAY_MILLIS, MAX_DELAY_MILLIS);
+	}
+
+	ImportStatusResolver(Function<String, ImportStatusResponse> lookup, int threads, long initialDelayMillis, long maxDelayMillis) {
+		this.lookup = lookup;
+		this.initialDelayMillis = initialDelayMillis;
+		this.maxDelayMillis = maxDelayMillis;
+		this.scheduler = Executors.newScheduledThreadPool(threads, r -> {
+			Thread thread = new Thread(r, "github-import-status");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Starts tracking the import (if it is not already tracked) and returns a
+	 * future that completes with the GitHub issue number once the import is done.
+	 */
+	CompletableFuture<Integer> resolve(String importUrl) {
+		CompletableFuture<Integer> issueNumber = new CompletableFuture<>();
+		CompletableFuture<Integer> existing = outstanding.putIfAbsent(importUrl, issueNumber);
+		if(existing != null) {
+			return existing;
+		}
+		// only polled once it is outstanding, so a quick completion removes it
+		issueNumber.whenComplete((number, failure) -> outstanding.remove(importUrl, issueNumber));
+		schedule(importUrl, issueNumber, initialDelayMillis, 0);
+		return issueNumber;
+	}
+
+	/**
+	 * The number of imports that are still pending.
+	 */
+	int getOutstanding() {
+		return outstanding.size();
+	}
+
+	@Override
+	public void close() {
+		scheduler.shutdownNow();
+	}
+
+	private void schedule(String importUrl, CompletableFuture<Integer> issueNumber, long delayMillis, int failures) {
+		scheduler.schedule(() -> poll(importUrl, issueNumber, delayMillis, failures), delayMillis, TimeUnit.MILLISECONDS);
+	}
+
+	private void poll(String importUrl, CompletableFuture<Integer> issueNumber, long delayMillis, int failures) {
+		long nextDelayMillis = Math.min((initialDelayMillis + delayMillis) * 2, maxDelayMillis);
+		try {
+			ImportStatusResponse status = lookup.apply(importUrl);
+			if(status.getIssueUrl() != null) {
+				issueNumber.complete(parseIssueNumber(status.getIssueUrl()));
+			} else if(status.isFailed()) {
+				issueNumber.completeExceptionally(new IllegalStateException("Import " + importUrl + " failed with " + status.getErrors()));
+			} else {
+				schedule(importUrl, issueNumber, nextDelayMillis, 0);
+			}
+		} catch(HttpServerErrorException | ResourceAccessException e) {
+			// the import is still running, so a failure to look it up is retried
+			if(failures + 1 >= MAX_FAILURES) {
+				issueNumber.completeExceptionally(e);
+			} else {
+				schedule(importUrl, issueNumber, nextDelayMillis, failures + 1);
+			}
+		} catch(RuntimeException e) {
+			issueNumber.completeExceptionally(e);
+		}
+	}
+
+	static int parseIssueNumber(String issueUrl) {
+		List<String> segments = UriComponentsBuilder.fromUriString(issueUrl).build().getPathSegments();
+		return Integer.parseInt(segments.get(segments.size() - 1));
+	}
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pivotal.github;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.pivotal.github.GithubClient.ImportedIssue;
+
+/**
+ * Keeps the {@link ImportedIssue}s of a migration in a temporary file, so the
+ * heap only holds where each one is and the issue numbers. The JIRA issue and
+ * its converted comments can be garbage collected as soon as it is imported,
+ * rather than being held until the backports and links are created.
+ *
+ * <p>
+ * The file is append only. Putting an issue again appends a new record and the
+ * index points to the latest one.
+ * </p>
+ *
+ * @author Rob Winch
+ *
+ */
+class ImportedIssueStore implements Closeable {
+	private static final ObjectMapper MAPPER = Jackson2ObjectMapperBuilder.json().build();
+
+	private final Path file;
+
+	private final FileChannel channel;
+
+	/**
+	 * The position and length of the latest record of each JIRA key, in the
+	 * order the keys were first put.
+	 */
+	private final Map<String, long[]> index = new LinkedHashMap<>();
+
+	private final Map<String, Integer> issueNumbers = new ConcurrentHashMap<>();
+
+	private long end;
+
+	ImportedIssueStore() throws IOException {
+		this.file = Files.createTempFile("imported-issues", ".ndjson");
+		this.channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+	}
+
+	void put(ImportedIssue importedIssue) {
+		try {
+			byte[] record = MAPPER.writeValueAsBytes(importedIssue);
+			synchronized (this) {
+				ByteBuffer buffer = ByteBuffer.wrap(record);
+				while(buffer.hasRemaining()) {
+					end += channel.write(buffer, end);
+				}
+				index.put(importedIssue.getKey(), new long[] { end - record.length, record.length });
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * The issue with the given JIRA key or null if it was not put.
+	 */
+	ImportedIssue get(String key) {
+		long[] location;
+		synchronized (this) {
+			location = index.get(key);
+		}
+		if(location == null) {
+			return null;
+		}
+		try {
+			ByteBuffer buffer = ByteBuffer.allocate((int) location[1]);
+			while(buffer.hasRemaining()) {
+				if(channel.read(buffer, location[0] + buffer.position()) < 0) {
+					throw new IOException("Unexpected end of " + file);
+				}
+			}
+			return MAPPER.readValue(buffer.array(), ImportedIssue.class);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	synchronized boolean contains(String key) {
+		return index.containsKey(key);
+	}
+
+	/**
+	 * The JIRA keys in the order they were first put.
+	 */
+	synchronized List<String> getKeys() {
+		return new ArrayList<>(index.keySet());
+	}
+
+	/**
+	 * The GitHub issue number of the JIRA key or null if it is not known yet.
+	 */
+	Integer getIssueNumber(String key) {
+		return issueNumbers.get(key);
+	}
+
+	void setIssueNumber(String key, int issueNumber) {
+		issueNumbers.put(key, issueNumber);
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+}
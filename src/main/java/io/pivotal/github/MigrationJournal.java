@@ -0,0 +1,451 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pivotal.github;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import org.joda.time.DateTime;
+import org.springframework.util.StringUtils;
+
+import lombok.Data;
+
+/**
+ * An append-only record of the progress of a migration. Each line records the
+ * latest state of a single JIRA issue, so if the migration dies it can be
+ * resumed without importing the same issues again.
+ *
+ * <p>
+ * Each line is tab separated and contains the JIRA key, the {@link Phase}, the
+ * import url, the GitHub issue number and the predicted issue number (either
+ * of which may be empty), the time of the latest JIRA comment that is on
+ * GitHub and the labels the migration applied (URL encoded and comma
+ * separated). When the journal is read the last line for a key wins.
+ * </p>
+ *
+ * <p>
+ * Each backport is recorded as soon as it is imported with a line of
+ * {@value #BACKPORT}, the JIRA key, the version, the import url and the number
+ * of the issue the backport refers to. So a migration that dies while an issue
+ * is backported only creates the backports that are missing. Likewise, a line
+ * of {@value #LINKS} records the issue numbers the links of an issue refer to,
+ * so predicted numbers can be verified even if the migration is resumed.
+ * </p>
+ *
+ * <p>
+ * Once a migration (or an incremental sync) finishes, a line with
+ * {@value #SYNCED} and the time the JIRA issues were queried is recorded. The
+ * next incremental sync only needs the issues updated since then.
+ * </p>
+ *
+ * @author Rob Winch
+ *
+ */
+public class MigrationJournal implements Closeable {
+	private static final String SEPARATOR = "\t";
+
+	static final String SYNCED = "SYNCED";
+
+	static final String BACKPORT = "BACKPORT";
+
+	static final String LINKS = "LINKS";
+
+	private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+	private final Writer writer;
+
+	private volatile DateTime watermark;
+
+	/**
+	 * Creates a journal that is only kept in memory.
+	 */
+	public MigrationJournal() {
+		this.writer = null;
+	}
+
+	/**
+	 * Creates a journal backed by the given file, reading any entries that were
+	 * recorded by a previous migration.
+	 *
+	 * @throws IllegalStateException if a complete line of the file is not valid
+	 */
+	public MigrationJournal(Path file) throws IOException {
+		if(Files.exists(file)) {
+			List<String> lines = readCompleteLines(file);
+			for(int i = 0; i < lines.size(); i++) {
+				try {
+					read(lines.get(i));
+				} catch(IllegalArgumentException e) {
+					throw new IllegalStateException("Line " + (i + 1) + " of the journal " + file + " is not valid: " + lines.get(i), e);
+				}
+			}
+		}
+		this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+	}
+
+	public boolean isEmpty() {
+		return entries.isEmpty();
+	}
+
+	public Entry get(String key) {
+		return entries.get(key);
+	}
+
+	/**
+	 * The time the JIRA issues were queried by the last migration or sync that
+	 * finished, or null if none finished.
+	 */
+	public DateTime getWatermark() {
+		return watermark;
+	}
+
+	/**
+	 * Records that every issue updated before the watermark is migrated.
+	 */
+	public synchronized void synced(DateTime watermark) throws IOException {
+		this.watermark = watermark;
+		if(writer != null) {
+			writer.write(SYNCED + SEPARATOR + watermark + "\n");
+			writer.flush();
+		}
+	}
+
+	public boolean isCompleted(String key, Phase phase) {
+		Entry entry = get(key);
+		return entry != null && entry.getPhase().compareTo(phase) >= 0;
+	}
+
+	public synchronized void imported(String key, String importUrl) throws IOException {
+		imported(key, importUrl, null, null, Collections.emptyList());
+	}
+
+	/**
+	 * @param predictedIssueNumber the number GitHub is expected to assign, or
+	 * null if the issue numbers are not predicted
+	 * @param commentedUntil the time of the latest JIRA comment (or later) that
+	 * was imported
+	 * @param labels the labels the issue was imported with
+	 */
+	public synchronized void imported(String key, String importUrl, Integer predictedIssueNumber, DateTime commentedUntil, Collection<String> labels) throws IOException {
+		Entry entry = new Entry();
+		entry.setKey(key);
+		entry.setPhase(Phase.IMPORTED);
+		entry.setImportUrl(importUrl);
+		entry.setPredictedIssueNumber(predictedIssueNumber);
+		entry.setCommentedUntil(commentedUntil);
+		entry.getLabels().addAll(labels);
+		append(entry);
+	}
+
+	public synchronized void resolved(String key, int issueNumber) throws IOException {
+		Entry entry = copy(key);
+		entry.setIssueNumber(issueNumber);
+		append(entry);
+	}
+
+	public synchronized void completed(String key, Phase phase) throws IOException {
+		Entry entry = copy(key);
+		if(entry.getPhase().compareTo(phase) < 0) {
+			entry.setPhase(phase);
+		}
+		append(entry);
+	}
+
+	/**
+	 * Records that the JIRA comments created up to the given time are on GitHub.
+	 * The time never moves backwards.
+	 */
+	public synchronized void commented(String key, DateTime commentedUntil) throws IOException {
+		Entry entry = copy(key);
+		if(entry.getCommentedUntil() != null && !commentedUntil.isAfter(entry.getCommentedUntil())) {
+			return;
+		}
+		entry.setCommentedUntil(commentedUntil);
+		append(entry);
+	}
+
+	/**
+	 * Records the labels the migration applied to the issue, replacing the
+	 * ones recorded before.
+	 */
+	public synchronized void labeled(String key, Collection<String> labels) throws IOException {
+		Entry entry = copy(key);
+		entry.getLabels().clear();
+		entry.getLabels().addAll(labels);
+		append(entry);
+	}
+
+	/**
+	 * Records that the backport of the issue to the version was imported.
+	 *
+	 * @param referencedIssueNumber the number of the issue the backport refers
+	 * to
+	 */
+	public synchronized void backported(String key, String version, String importUrl, int referencedIssueNumber) throws IOException {
+		Entry entry = copy(key);
+		entry.getBackports().put(version, new Backport(importUrl, referencedIssueNumber));
+		entries.put(key, entry);
+		if(writer != null) {
+			writer.write(BACKPORT + SEPARATOR + key + SEPARATOR + version + SEPARATOR + importUrl + SEPARATOR
+					+ referencedIssueNumber + "\n");
+			writer.flush();
+		}
+	}
+
+	/**
+	 * Records the issue numbers (by JIRA key) the links of the issue refer to,
+	 * replacing the ones recorded before.
+	 */
+	public synchronized void linked(String key, Map<String, Integer> linkedIssueNumbers) throws IOException {
+		Entry entry = copy(key);
+		entry.getLinkedIssueNumbers().clear();
+		entry.getLinkedIssueNumbers().putAll(linkedIssueNumbers);
+		entries.put(key, entry);
+		if(writer != null) {
+			String links = linkedIssueNumbers.entrySet().stream()
+					.map(link -> link.getKey() + "=" + link.getValue())
+					.collect(Collectors.joining(","));
+			writer.write(LINKS + SEPARATOR + key + SEPARATOR + links + "\n");
+			writer.flush();
+		}
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if(writer != null) {
+			writer.close();
+		}
+	}
+
+	private Entry copy(String key) {
+		Entry existing = get(key);
+		if(existing == null) {
+			throw new IllegalStateException("No journal entry for " + key + ". The issue must be imported first.");
+		}
+		Entry entry = new Entry();
+		entry.setKey(key);
+		entry.setPhase(existing.getPhase());
+		entry.setImportUrl(existing.getImportUrl());
+		entry.setIssueNumber(existing.getIssueNumber());
+		entry.setPredictedIssueNumber(existing.getPredictedIssueNumber());
+		entry.setCommentedUntil(existing.getCommentedUntil());
+		entry.getLabels().addAll(existing.getLabels());
+		entry.getBackports().putAll(existing.getBackports());
+		entry.getLinkedIssueNumbers().putAll(existing.getLinkedIssueNumbers());
+		return entry;
+	}
+
+	/**
+	 * Replaces the entry and writes it. The caller holds the lock, so the entry
+	 * it was copied from cannot change in between.
+	 */
+	private void append(Entry entry) throws IOException {
+		entries.put(entry.getKey(), entry);
+		if(writer == null) {
+			return;
+		}
+		writer.write(entry.getKey() + SEPARATOR + entry.getPhase() + SEPARATOR + entry.getImportUrl() + SEPARATOR
+				+ format(entry.getIssueNumber()) + SEPARATOR + format(entry.getPredictedIssueNumber()) + SEPARATOR
+				+ (entry.getCommentedUntil() == null ? "" : entry.getCommentedUntil()) + SEPARATOR + formatLabels(entry.getLabels()));
+		writer.write("\n");
+		// flush every record so it survives the JVM dying
+		writer.flush();
+	}
+
+	private static String format(Integer issueNumber) {
+		return issueNumber == null ? "" : issueNumber.toString();
+	}
+
+	private static String formatLabels(Set<String> labels) throws UnsupportedEncodingException {
+		List<String> encoded = new ArrayList<>();
+		for(String label : labels) {
+			encoded.add(URLEncoder.encode(label, "UTF-8"));
+		}
+		return String.join(",", encoded);
+	}
+
+	/**
+	 * Reads the lines of the journal. If the JVM died while the last line was
+	 * being written, that line is incomplete (i.e. it has no line break) and is
+	 * cut off, so the lines appended next start on a line of their own.
+	 */
+	private static List<String> readCompleteLines(Path file) throws IOException {
+		String content = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+		int end = content.lastIndexOf('\n') + 1;
+		if(end < content.length()) {
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+				channel.truncate(content.substring(0, end).getBytes(StandardCharsets.UTF_8).length);
+			}
+		}
+		return end == 0 ? Collections.emptyList() : Arrays.asList(content.substring(0, end).split("\n"));
+	}
+
+	/**
+	 * Applies a line of the journal.
+	 *
+	 * @throws IllegalArgumentException if the line is not valid
+	 */
+	private void read(String line) throws UnsupportedEncodingException {
+		if(line.startsWith(SYNCED + SEPARATOR)) {
+			watermark = DateTime.parse(line.substring(SYNCED.length() + SEPARATOR.length()));
+		} else if(line.startsWith(BACKPORT + SEPARATOR)) {
+			parseBackport(line);
+		} else if(line.startsWith(LINKS + SEPARATOR)) {
+			parseLinks(line);
+		} else {
+			Entry entry = parse(line);
+			Entry previous = entries.get(entry.getKey());
+			if(previous != null) {
+				entry.getBackports().putAll(previous.getBackports());
+				entry.getLinkedIssueNumbers().putAll(previous.getLinkedIssueNumbers());
+			}
+			entries.put(entry.getKey(), entry);
+		}
+	}
+
+	private static Entry parse(String line) throws UnsupportedEncodingException {
+		String[] parts = line.split(SEPARATOR, -1);
+		if(parts.length != 7) {
+			throw new IllegalArgumentException("Expected 7 fields but got " + parts.length);
+		}
+		Entry entry = new Entry();
+		entry.setKey(parts[0]);
+		entry.setPhase(Phase.valueOf(parts[1]));
+		entry.setImportUrl(parts[2]);
+		entry.setIssueNumber(parseIssueNumber(parts[3]));
+		entry.setPredictedIssueNumber(parseIssueNumber(parts[4]));
+		entry.setCommentedUntil(StringUtils.hasLength(parts[5]) ? DateTime.parse(parts[5]) : null);
+		for(String label : StringUtils.commaDelimitedListToStringArray(parts[6])) {
+			entry.getLabels().add(URLDecoder.decode(label, "UTF-8"));
+		}
+		return entry;
+	}
+
+	private static Integer parseIssueNumber(String issueNumber) {
+		return StringUtils.hasLength(issueNumber) ? Integer.valueOf(issueNumber) : null;
+	}
+
+	/**
+	 * Adds the backport of a line to its entry.
+	 */
+	private void parseBackport(String line) {
+		String[] parts = line.split(SEPARATOR, -1);
+		if(parts.length != 5) {
+			throw new IllegalArgumentException("Expected 5 fields but got " + parts.length);
+		}
+		getRecorded(parts[1]).getBackports().put(parts[2], new Backport(parts[3], Integer.parseInt(parts[4])));
+	}
+
+	/**
+	 * Replaces the linked issue numbers of an entry with the ones of a line.
+	 */
+	private void parseLinks(String line) {
+		String[] parts = line.split(SEPARATOR, -1);
+		if(parts.length != 3) {
+			throw new IllegalArgumentException("Expected 3 fields but got " + parts.length);
+		}
+		Map<String, Integer> linkedIssueNumbers = new LinkedHashMap<>();
+		for(String link : StringUtils.commaDelimitedListToStringArray(parts[2])) {
+			String[] keyNumber = link.split("=", 2);
+			if(keyNumber.length != 2) {
+				throw new IllegalArgumentException("Expected KEY=number but got " + link);
+			}
+			linkedIssueNumbers.put(keyNumber[0], Integer.valueOf(keyNumber[1]));
+		}
+		Map<String, Integer> entryLinks = getRecorded(parts[1]).getLinkedIssueNumbers();
+		entryLinks.clear();
+		entryLinks.putAll(linkedIssueNumbers);
+	}
+
+	/**
+	 * The entry a line refers to, which is always recorded before it.
+	 */
+	private Entry getRecorded(String key) {
+		Entry entry = entries.get(key);
+		if(entry == null) {
+			throw new IllegalArgumentException("No entry for " + key + " before this line");
+		}
+		return entry;
+	}
+
+	/**
+	 * The phases of migrating a single issue, in the order they are performed.
+	 * Only issues whose number was predicted are VERIFIED.
+	 */
+	public enum Phase {
+		IMPORTED, BACKPORTED, LINKED, VERIFIED
+	}
+
+	@Data
+	public static class Entry {
+		String key;
+		Phase phase;
+		String importUrl;
+		Integer issueNumber;
+		/**
+		 * The number GitHub was expected to assign, or null if the issue numbers
+		 * were not predicted when the issue was imported.
+		 */
+		Integer predictedIssueNumber;
+		/**
+		 * The time of the latest JIRA comment (or later) that is on GitHub, or null
+		 * if it was not recorded.
+		 */
+		DateTime commentedUntil;
+		/**
+		 * The labels the migration applied, which it may remove again. Empty if
+		 * they were not recorded.
+		 */
+		final Set<String> labels = new LinkedHashSet<>();
+		/**
+		 * The issue numbers (by JIRA key) the links of the issue refer to.
+		 */
+		final Map<String, Integer> linkedIssueNumbers = new LinkedHashMap<>();
+		/**
+		 * The backports that were imported by version.
+		 */
+		final Map<String, Backport> backports = new LinkedHashMap<>();
+	}
+
+	@Data
+	public static class Backport {
+		final String importUrl;
+		/**
+		 * The number of the issue the backport refers to.
+		 */
+		final int referencedIssueNumber;
+	}
+}
@@ -15,15 +15,34 @@
  */
 package io.pivotal.jira;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestOperations;
 import org.springframework.web.client.RestTemplate;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.pivotal.util.MigrationMetrics;
+import io.pivotal.util.SharedHttpClient;
 import lombok.Data;
 
 /**
@@ -36,25 +55,145 @@ public class JiraClient {
 	@Autowired
 	JiraConfig jiraConfig;
 
-	RestOperations rest = new RestTemplate();
+	@Autowired
+	MigrationMetrics metrics = new MigrationMetrics();
+
+	RestOperations rest = interning(new RestTemplate());
+
+	@Autowired
+	public void setSharedHttpClient(SharedHttpClient http) {
+		RestTemplate rest = interning(new RestTemplate(http.getRequestFactory()));
+		rest.setInterceptors(Collections.singletonList((request, body, execution) -> metrics.execute("jira", request, body, execution)));
+		this.rest = rest;
+	}
+
+	/**
+	 * Deduplicates the values every issue refers to (see
+	 * {@link JiraInterningModule}) as the responses are read.
+	 */
+	private static RestTemplate interning(RestTemplate rest) {
+		ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().modulesToInstall(new JiraInterningModule()).build();
+		rest.getMessageConverters().replaceAll(converter -> converter instanceof MappingJackson2HttpMessageConverter ?
+				new MappingJackson2HttpMessageConverter(mapper) : converter);
+		return rest;
+	}
+
+	JiraSnapshot snapshot;
+
+	/**
+	 * Opens the {@link JiraConfig#getSnapshot()} (if configured) so JIRA is not
+	 * queried.
+	 */
+	@PostConstruct
+	public void openSnapshot() throws IOException {
+		if(jiraConfig.getSnapshot() != null) {
+			snapshot = new JiraSnapshot(Paths.get(jiraConfig.getSnapshot()));
+		}
+	}
+
+	@PreDestroy
+	public void closeSnapshot() throws IOException {
+		if(snapshot != null) {
+			snapshot.close();
+		}
+	}
 
 	public List<JiraIssue> findIssues(String jql) {
+		try (Stream<JiraIssue> issues = searchIssues(jql).stream()) {
+			return issues.collect(Collectors.toList());
+		}
+	}
 
-		List<JiraIssue> results = new ArrayList<>();
-		Long startAt = 0L;
+	/**
+	 * Searches for the issues matching the jql. The pages are fetched ahead in
+	 * the background while the returned {@link JiraSearchPager} is consumed.
+	 */
+	public JiraSearchPager searchIssues(String jql) {
+		if(snapshot != null) {
+			if(!jql.equals(snapshot.getJql())) {
+				System.out.println("Replaying the issues that matched '" + snapshot.getJql() + "' when the snapshot was exported instead of '" + jql + "'");
+			}
+			// the snapshot is read sequentially, so the pages are replayed by a single thread
+			return new JiraSearchPager(snapshot::search, jiraConfig.getMaxSearchPagesInFlight(), 1);
+		}
+		return new JiraSearchPager(startAt -> search(jql, startAt), jiraConfig.getMaxSearchPagesInFlight(), jiraConfig.getSearchThreads());
+	}
+
+	private JiraSearchResult search(String jql, long startAt) {
+		ResponseEntity<JiraSearchResult> result = rest.getForEntity(jiraConfig.getBaseUrl() + "/rest/api/2/search?maxResults=1000&startAt={0}&jql={jql}&fields=summary,comment,assignee,components,created,creator,description,fixVersions,issuetype,reporter,resolution,status,subtasks,issuelinks,updated", JiraSearchResult.class, startAt, jql);
+		JiraSearchResult page = result.getBody();
+		fetchMissingComments(page.getIssues());
+		return page;
+	}
 
-		while(startAt != null) {
-			ResponseEntity<JiraSearchResult> result = rest.getForEntity(jiraConfig.getBaseUrl() + "/rest/api/2/search?maxResults=1000&startAt={0}&jql={jql}&fields=summary,comment,assignee,components,created,creator,description,fixVersions,issuetype,reporter,resolution,status,subtasks,issuelinks,resolution,updated", JiraSearchResult.class, startAt, jql);
-			JiraSearchResult body = result.getBody();
-			results.addAll(body.getIssues());
-			startAt = body.getNextStartAt();
+	/**
+	 * The search only embeds the first page of the comments of each issue, so
+	 * the remaining comments of the issues with more comments are fetched from
+	 * the comment endpoint. The issues are fetched concurrently using
+	 * {@link JiraConfig#getCommentThreads()}.
+	 */
+	void fetchMissingComments(List<JiraIssue> issues) {
+		List<JiraIssue> incomplete = issues.stream()
+				.filter(issue -> issue.getFields().getComment() != null && !issue.getFields().getComment().isComplete())
+				.collect(Collectors.toList());
+		if(incomplete.isEmpty()) {
+			return;
 		}
+		ExecutorService commentExecutor = Executors.newFixedThreadPool(Math.min(jiraConfig.getCommentThreads(), incomplete.size()));
+		try {
+			CompletableFuture<?>[] fetches = incomplete.stream()
+					.map(issue -> CompletableFuture.runAsync(() -> fetchMissingComments(issue), commentExecutor))
+					.toArray(CompletableFuture[]::new);
+			CompletableFuture.allOf(fetches).join();
+		} catch(CompletionException e) {
+			if(e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw e;
+		} finally {
+			commentExecutor.shutdownNow();
+		}
+	}
 
-		return results;
+	private void fetchMissingComments(JiraIssue issue) {
+		JiraCommentPage embedded = issue.getFields().getComment();
+		List<JiraComment> comments = new ArrayList<>(embedded.getComments());
+		int embeddedCount = comments.size();
+		long total = embedded.getTotal();
+		while(embedded.getStartAt() + comments.size() < total) {
+			// JIRA decides how many comments are in each page
+			JiraCommentPage page = rest.getForEntity(jiraConfig.getBaseUrl() + "/rest/api/2/issue/{key}/comment?startAt={startAt}",
+					JiraCommentPage.class, issue.getKey(), embedded.getStartAt() + comments.size()).getBody();
+			if(page.getComments() == null || page.getComments().isEmpty()) {
+				// comments were deleted since the search
+				break;
+			}
+			comments.addAll(page.getComments());
+			total = page.getTotal();
+		}
+		embedded.setComments(comments);
+		embedded.setMaxResults(comments.size());
+		embedded.setTotal(embedded.getStartAt() + comments.size());
+		metrics.counter("jira.comments.fetched").inc(comments.size() - embeddedCount);
 	}
 
 	public JiraProject findProject(String id) {
+		if(snapshot != null) {
+			return snapshot.getProject();
+		}
 		ResponseEntity<JiraProject> result = rest.getForEntity(jiraConfig.getBaseUrl() + "/rest/api/2/project/{id}", JiraProject.class, id);
 		return result.getBody();
 	}
+
+	/**
+	 * Writes the project and the issues matching the jql to a
+	 * {@link JiraSnapshot}.
+	 */
+	public void exportSnapshot(Path file, String projectId, String jql) throws IOException {
+		JiraProject project = findProject(projectId);
+		try (JiraSearchPager issues = searchIssues(jql)) {
+			System.out.println("Exporting " + issues.getTotal() + " JIRA issues to " + file);
+			JiraSnapshot.write(file, jql, project, issues);
+		}
+	}
 }
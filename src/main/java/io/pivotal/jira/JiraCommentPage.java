@@ -17,6 +17,7 @@ package io.pivotal.jira;
 
 import java.util.List;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
 import lombok.Data;
@@ -29,4 +30,16 @@ import lombok.Data;
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class JiraCommentPage {
 	List<JiraComment> comments;
+	long startAt;
+	long maxResults;
+	long total;
+
+	/**
+	 * True if the page contains every comment of the issue. JIRA only embeds
+	 * the first page of comments in the search results.
+	 */
+	@JsonIgnore
+	public boolean isComplete() {
+		return comments == null || startAt + comments.size() >= total;
+	}
 }
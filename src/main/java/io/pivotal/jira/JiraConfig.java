@@ -15,6 +15,10 @@
  */
 package io.pivotal.jira;
 
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.DateTime;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
@@ -44,7 +48,65 @@ public class JiraConfig {
 	 */
 	String migrateJql;
 
+	/**
+	 * The maximum number of search result pages that are buffered ahead of the
+	 * migration. One more page may be fetched while waiting for room and one is
+	 * being migrated, so at most this plus two pages are held at once. This
+	 * bounds the memory used while the issues are streamed from JIRA.
+	 */
+	int maxSearchPagesInFlight = 2;
+
+	/**
+	 * The number of search result pages that are requested from JIRA
+	 * concurrently once the total number of issues is known.
+	 */
+	int searchThreads = 1;
+
+	/**
+	 * The number of issues whose remaining comments are requested from JIRA
+	 * concurrently. Only issues with more comments than JIRA embeds in the
+	 * search results need this.
+	 */
+	int commentThreads = 4;
+
+	/**
+	 * (Optional) a snapshot written with exportSnapshot. If set, the project and
+	 * the issues are replayed from the snapshot instead of being queried from
+	 * JIRA.
+	 */
+	String snapshot;
+
+	/**
+	 * (Optional) if set, the project and the issues matching the migrateJql are
+	 * written to this file and nothing is migrated. The file can then be
+	 * replayed using snapshot.
+	 */
+	String exportSnapshot;
+
+	/**
+	 * If true and the journal shows a finished migration, only the issues
+	 * updated since the last migration or sync are queried. Issues that were
+	 * already migrated only get their new comments, state and labels. Requires
+	 * github.journal.
+	 */
+	boolean incremental;
+
 	public String getMigrateJql() {
 		return migrateJql == null ? "project = " + getProjectId() + " ORDER BY key ASC" : migrateJql;
 	}
+
+	/**
+	 * The migrateJql restricted to the issues updated since the given time. The
+	 * time is relative (i.e. "updated &gt;= -90m") since JIRA interprets absolute
+	 * times in the time zone of the user, and is rounded to include the whole
+	 * minute.
+	 */
+	public String getMigrateJql(DateTime updatedSince) {
+		String jql = getMigrateJql();
+		long minutes = TimeUnit.MILLISECONDS.toMinutes(System.currentTimeMillis() - updatedSince.getMillis()) + 1;
+		int orderBy = jql.toUpperCase(Locale.ENGLISH).lastIndexOf("ORDER BY");
+		String query = (orderBy < 0 ? jql : jql.substring(0, orderBy)).trim();
+		String updated = "updated >= -" + minutes + "m";
+		return (query.isEmpty() ? updated : "(" + query + ") AND " + updated) + (orderBy < 0 ? "" : " " + jql.substring(orderBy));
+	}
 }
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pivotal.jira;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.DeserializationConfig;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.deser.BeanDeserializerModifier;
+import com.fasterxml.jackson.databind.deser.std.DelegatingDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+
+/**
+ * Deduplicates the users, statuses, issue types, resolutions, fix versions,
+ * components and link types as they are deserialized. Every issue refers to a
+ * handful of these, so without this a large project holds millions of equal
+ * copies (and the Strings within them, like the URL of each user).
+ *
+ * <p>
+ * Equal values are replaced with the first instance that was deserialized, so
+ * the deserialized values are shared and must not be modified. The registry
+ * only holds the values weakly, so a value is forgotten once no issue refers
+ * to it anymore. The linked issues are not interned, since each has its own
+ * key and summary and is hardly ever shared.
+ * </p>
+ *
+ * @author Rob Winch
+ *
+ */
+public class JiraInterningModule extends SimpleModule {
+	private static final long serialVersionUID = 1L;
+
+	static final Set<Class<?>> INTERNED = new HashSet<>(Arrays.asList(JiraUser.class, JiraStatus.class, JiraIssueType.class,
+			JiraResolution.class, JiraFixVersion.class, JiraComponent.class, IssueLink.RelatedType.class));
+
+	/**
+	 * Each value is the key itself, referenced weakly so it does not keep the
+	 * key from being collected.
+	 */
+	private final Map<Object, WeakReference<Object>> registry = new WeakHashMap<>();
+
+	public JiraInterningModule() {
+		super("jira-interning");
+		setDeserializerModifier(new BeanDeserializerModifier() {
+			@Override
+			public JsonDeserializer<?> modifyDeserializer(DeserializationConfig config, BeanDescription beanDesc, JsonDeserializer<?> deserializer) {
+				return INTERNED.contains(beanDesc.getBeanClass()) ? new InterningDeserializer(deserializer) : deserializer;
+			}
+		});
+	}
+
+	/**
+	 * The number of distinct values that were deserialized.
+	 */
+	public synchronized int size() {
+		return registry.size();
+	}
+
+	@SuppressWarnings("unchecked")
+	synchronized <T> T intern(T value) {
+		if(value == null) {
+			return null;
+		}
+		WeakReference<Object> reference = registry.get(value);
+		Object existing = reference == null ? null : reference.get();
+		if(existing != null) {
+			return (T) existing;
+		}
+		registry.put(value, new WeakReference<>(value));
+		return value;
+	}
+
+	private class InterningDeserializer extends DelegatingDeserializer {
+		private static final long serialVersionUID = 1L;
+
+		InterningDeserializer(JsonDeserializer<?> delegatee) {
+			super(delegatee);
+		}
+
+		@Override
+		protected JsonDeserializer<?> newDelegatingInstance(JsonDeserializer<?> newDelegatee) {
+			return new InterningDeserializer(newDelegatee);
+		}
+
+		@Override
+		public Object deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+			return intern(super.deserialize(p, ctxt));
+		}
+	}
+}
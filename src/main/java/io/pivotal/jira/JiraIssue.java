@@ -20,6 +20,7 @@ import java.util.List;
 import org.joda.time.DateTime;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
 import lombok.Data;
@@ -37,6 +38,7 @@ public class JiraIssue {
 
 	Fields fields;
 
+	@JsonIgnore
 	public String getBrowserUrl() {
 		return getBrowserUrl(self, key);
 	}
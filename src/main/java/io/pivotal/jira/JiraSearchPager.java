@@ -0,0 +1,180 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pivotal.jira;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Iterates over the {@link JiraIssue}s of a JIRA search while the following
+ * pages are fetched in the background. At most {@code maxPagesInFlight} pages
+ * are buffered ahead of the consumer. On top of those, one page is being
+ * consumed and one more may be fetched while it waits for room in the buffer,
+ * so at most {@code maxPagesInFlight + 2} pages are held at once. The memory
+ * used is bounded by the page size rather than the size of the project.
+ *
+ * <p>
+ * Once the first page reports the total, the remaining {@code startAt} offsets
+ * are requested concurrently using {@code searchThreads} threads and handed to
+ * the consumer in order.
+ * </p>
+ *
+ * @author Rob Winch
+ *
+ */
+public class JiraSearchPager implements Iterator<JiraIssue>, AutoCloseable {
+	private static final CompletableFuture<JiraSearchResult> NO_MORE_PAGES = new CompletableFuture<>();
+
+	private final Function<Long, JiraSearchResult> search;
+
+	private final ExecutorService searchExecutor;
+
+	private final BlockingQueue<CompletableFuture<JiraSearchResult>> pages;
+
+	private final CompletableFuture<Long> total = new CompletableFuture<>();
+
+	private final Thread fetcher;
+
+	private Iterator<JiraIssue> current = Collections.emptyIterator();
+
+	private boolean lastPage;
+
+	JiraSearchPager(Function<Long, JiraSearchResult> search, int maxPagesInFlight, int searchThreads) {
+		this.search = search;
+		this.searchExecutor = Executors.newFixedThreadPool(searchThreads, r -> {
+			Thread thread = new Thread(r, "jira-search-page");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.pages = new ArrayBlockingQueue<>(maxPagesInFlight);
+		this.fetcher = new Thread(this::fetchPages, "jira-search");
+		this.fetcher.setDaemon(true);
+		this.fetcher.start();
+	}
+
+	/**
+	 * The total number of issues matching the search. Blocks until the first
+	 * page has been fetched.
+	 */
+	public long getTotal() {
+		return join(total);
+	}
+
+	public Stream<JiraIssue> stream() {
+		Spliterator<JiraIssue> spliterator = Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL);
+		return StreamSupport.stream(spliterator, false).onClose(this::close);
+	}
+
+	@Override
+	public boolean hasNext() {
+		while(!current.hasNext()) {
+			if(lastPage) {
+				return false;
+			}
+			CompletableFuture<JiraSearchResult> page = nextPage();
+			if(page == NO_MORE_PAGES) {
+				lastPage = true;
+				return false;
+			}
+			current = join(page).getIssues().iterator();
+		}
+		return true;
+	}
+
+	@Override
+	public JiraIssue next() {
+		if(!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		return current.next();
+	}
+
+	@Override
+	public void close() {
+		fetcher.interrupt();
+		searchExecutor.shutdownNow();
+	}
+
+	private CompletableFuture<JiraSearchResult> nextPage() {
+		try {
+			return pages.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for JIRA search results", e);
+		}
+	}
+
+	private void fetchPages() {
+		try {
+			JiraSearchResult first;
+			try {
+				first = search.apply(0L);
+			} catch(RuntimeException e) {
+				total.completeExceptionally(e);
+				pages.put(failed(e));
+				return;
+			}
+			total.complete(first.getTotal());
+			pages.put(CompletableFuture.completedFuture(first));
+
+			// the queue is bounded, so this blocks once maxPagesInFlight requests are ahead of the consumer
+			// (the page that is put is already being fetched while it waits)
+			for(Long startAt = first.getNextStartAt(); startAt != null; startAt = nextStartAt(first, startAt)) {
+				long offset = startAt;
+				pages.put(CompletableFuture.supplyAsync(() -> search.apply(offset), searchExecutor));
+			}
+			pages.put(NO_MORE_PAGES);
+		} catch (InterruptedException e) {
+			total.cancel(false);
+		} finally {
+			searchExecutor.shutdown();
+		}
+	}
+
+	private static Long nextStartAt(JiraSearchResult first, long startAt) {
+		long next = startAt + first.getMaxResults();
+		return next >= first.getTotal() ? null : next;
+	}
+
+	private static CompletableFuture<JiraSearchResult> failed(RuntimeException e) {
+		CompletableFuture<JiraSearchResult> page = new CompletableFuture<>();
+		page.completeExceptionally(e);
+		return page;
+	}
+
+	private static <T> T join(CompletableFuture<T> future) {
+		try {
+			return future.join();
+		} catch(CompletionException e) {
+			if(e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw e;
+		}
+	}
+}
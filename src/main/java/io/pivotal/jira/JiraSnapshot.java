@@ -0,0 +1,195 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pivotal.jira;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.Data;
+
+/**
+ * A local copy of a {@link JiraProject} and the {@link JiraIssue}s to migrate,
+ * so rehearsals of a migration do not need to query JIRA.
+ *
+ * <p>
+ * The snapshot is gzipped JSON with one record per line. The first line is the
+ * {@link Header} and every following line is a single {@link JiraIssue}, so it
+ * can be written and replayed without holding the project in memory.
+ * </p>
+ *
+ * @author Rob Winch
+ *
+ */
+public class JiraSnapshot implements Closeable {
+	/**
+	 * The number of issues replayed per {@link JiraSearchResult}, which matches
+	 * the maxResults used when searching JIRA.
+	 */
+	static final int PAGE_SIZE = 1000;
+
+	private static final ObjectMapper MAPPER = Jackson2ObjectMapperBuilder.json().modulesToInstall(new JiraInterningModule()).build();
+
+	private final Path file;
+
+	private final Header header;
+
+	private BufferedReader reader;
+
+	private long position;
+
+	/**
+	 * Opens a snapshot that was previously written with
+	 * {@link #write(Path, String, JiraProject, JiraSearchPager)}.
+	 */
+	public JiraSnapshot(Path file) throws IOException {
+		this.file = file;
+		try (BufferedReader reader = open(file)) {
+			String line = reader.readLine();
+			if(line == null) {
+				throw new IOException("The JIRA snapshot " + file + " is empty");
+			}
+			this.header = MAPPER.readValue(line, Header.class);
+		}
+	}
+
+	/**
+	 * Writes the project and all of the issues to the file. The snapshot is
+	 * written to a temporary file first, so an interrupted export does not leave
+	 * a partial snapshot behind.
+	 */
+	public static void write(Path file, String jql, JiraProject project, JiraSearchPager issues) throws IOException {
+		Header header = new Header();
+		header.setJql(jql);
+		header.setTotal(issues.getTotal());
+		header.setProject(project);
+
+		Path parent = file.toAbsolutePath().getParent();
+		Path tmp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+		long written = 0;
+		try {
+			try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(tmp)), StandardCharsets.UTF_8)) {
+				writeLine(writer, header);
+				for(Iterator<JiraIssue> i = issues; i.hasNext();) {
+					writeLine(writer, i.next());
+					if(++written % PAGE_SIZE == 0) {
+						System.out.println("Exported " + written + " of " + header.getTotal() + " JIRA issues");
+					}
+				}
+			}
+			Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			Files.deleteIfExists(tmp);
+		}
+		if(written != header.getTotal()) {
+			System.out.println("Exported " + written + " JIRA issues, but the search reported " + header.getTotal() + ". The issues may have changed while they were exported.");
+		}
+	}
+
+	public JiraProject getProject() {
+		return header.getProject();
+	}
+
+	/**
+	 * The JQL the issues were found with when the snapshot was exported.
+	 */
+	public String getJql() {
+		return header.getJql();
+	}
+
+	public long getTotal() {
+		return header.getTotal();
+	}
+
+	/**
+	 * Replays the page of issues starting at startAt. The snapshot is read
+	 * sequentially, so the pages must be requested in order. Requesting the
+	 * first page starts reading the snapshot again.
+	 */
+	synchronized JiraSearchResult search(long startAt) {
+		try {
+			if(startAt == 0) {
+				restart();
+			} else if(startAt != position) {
+				throw new IllegalStateException("The JIRA snapshot must be replayed in order. Expected startAt " + position + " but got " + startAt);
+			}
+			List<JiraIssue> issues = new ArrayList<>();
+			String line;
+			while(issues.size() < PAGE_SIZE && (line = reader.readLine()) != null) {
+				issues.add(MAPPER.readValue(line, JiraIssue.class));
+			}
+			position += issues.size();
+
+			JiraSearchResult result = new JiraSearchResult();
+			result.setIssues(issues);
+			result.setStartAt(startAt);
+			result.setMaxResults(PAGE_SIZE);
+			result.setTotal(header.getTotal());
+			return result;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if(reader != null) {
+			reader.close();
+			reader = null;
+		}
+	}
+
+	private void restart() throws IOException {
+		close();
+		reader = open(file);
+		reader.readLine();
+		position = 0;
+	}
+
+	private static BufferedReader open(Path file) throws IOException {
+		return new BufferedReader(new InputStreamReader(new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8));
+	}
+
+	private static void writeLine(Writer writer, Object value) throws IOException {
+		// JSON escapes line terminators within strings, so each value is a single line
+		writer.write(MAPPER.writeValueAsString(value));
+		writer.write('\n');
+	}
+
+	@Data
+	static class Header {
+		String jql;
+		long total;
+		JiraProject project;
+	}
+}
@@ -17,6 +17,8 @@ package io.pivotal.jira;
 
 import org.springframework.web.util.UriComponentsBuilder;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import lombok.Data;
 
 /**
@@ -30,6 +32,7 @@ public class JiraUser {
 	String key;
 	String self;
 
+	@JsonIgnore
 	public String getBrowserUrl() {
 		return UriComponentsBuilder.fromHttpUrl(self).replacePath("/secure/ViewProfile.jspa").replaceQuery("").queryParam("name",key).toUriString();
 	}
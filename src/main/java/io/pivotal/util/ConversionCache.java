@@ -0,0 +1,167 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pivotal.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.UnaryOperator;
+
+/**
+ * A least recently used cache of converted text that is bounded by the number
+ * of characters it holds. The text is looked up by the name of the engine and
+ * the SHA-1 of the text, so the cache does not keep the (often much larger)
+ * original text.
+ *
+ * @author Rob Winch
+ *
+ */
+class ConversionCache {
+	/**
+	 * The characters an entry is counted as in addition to the converted text,
+	 * which covers the key and the entry itself.
+	 */
+	static final int ENTRY_OVERHEAD = 64;
+
+	private static final ThreadLocal<MessageDigest> SHA1 = ThreadLocal.withInitial(() -> {
+		try {
+			return MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	});
+
+	private final long maxSize;
+
+	private final Map<Key, String> converted = new LinkedHashMap<>(256, 0.75f, true);
+
+	private long size;
+
+	private final LongAdder hits = new LongAdder();
+
+	private final LongAdder misses = new LongAdder();
+
+	/**
+	 * @param maxSize the maximum number of characters to cache or 0 to not cache
+	 */
+	ConversionCache(long maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Returns the cached conversion of the text or converts and caches it. The
+	 * conversion is done outside of the lock, so the same text converted at the
+	 * same time by two threads may be converted twice.
+	 *
+	 * @param engine the name of the engine that converts the text
+	 */
+	String convert(String engine, String text, UnaryOperator<String> conversion) {
+		if(maxSize <= 0) {
+			return conversion.apply(text);
+		}
+		Key key = new Key(engine, sha1(text));
+		String result;
+		synchronized (this) {
+			result = converted.get(key);
+		}
+		if(result != null) {
+			hits.increment();
+			return result;
+		}
+		misses.increment();
+		result = conversion.apply(text);
+		put(key, result);
+		return result;
+	}
+
+	private synchronized void put(Key key, String result) {
+		long weight = weight(result);
+		if(weight > maxSize) {
+			return;
+		}
+		String previous = converted.put(key, result);
+		size += weight;
+		if(previous != null) {
+			size -= weight(previous);
+		}
+		for(Iterator<String> eldest = converted.values().iterator(); size > maxSize && eldest.hasNext();) {
+			size -= weight(eldest.next());
+			eldest.remove();
+		}
+	}
+
+	long getHits() {
+		return hits.sum();
+	}
+
+	long getMisses() {
+		return misses.sum();
+	}
+
+	/**
+	 * The number of characters cached, including the overhead of each entry.
+	 */
+	synchronized long getSize() {
+		return size;
+	}
+
+	synchronized int getCount() {
+		return converted.size();
+	}
+
+	private static long weight(String result) {
+		return result.length() + ENTRY_OVERHEAD;
+	}
+
+	private static byte[] sha1(String text) {
+		MessageDigest sha1 = SHA1.get();
+		sha1.reset();
+		return sha1.digest(text.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static final class Key {
+		private final String engine;
+
+		private final byte[] hash;
+
+		private final int hashCode;
+
+		Key(String engine, byte[] hash) {
+			this.engine = engine;
+			this.hash = hash;
+			this.hashCode = 31 * engine.hashCode() + Arrays.hashCode(hash);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if(!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return engine.equals(other.engine) && Arrays.equals(hash, other.hash);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+	}
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pivotal.util;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Data;
+
+/**
+ * The settings of the {@link SharedHttpClient} used for every request to
+ * GitHub and JIRA.
+ *
+ * @author Rob Winch
+ *
+ */
+@Component
+@ConfigurationProperties(prefix="http")
+@Data
+public class HttpConfig {
+	/**
+	 * The maximum number of connections kept open to each host. GitHub and JIRA
+	 * are each a single host, so this should be at least the number of threads
+	 * that talk to either of them.
+	 */
+	int maxConnectionsPerRoute = 20;
+
+	/**
+	 * The maximum number of connections kept open in total.
+	 */
+	int maxConnections = 50;
+
+	/**
+	 * The timeout in milliseconds to establish a connection or to lease one from
+	 * the pool.
+	 */
+	int connectTimeout = 10000;
+
+	/**
+	 * The timeout in milliseconds to wait for data once connected.
+	 */
+	int readTimeout = 60000;
+
+	/**
+	 * If true, gzip compressed responses are requested.
+	 */
+	boolean compression = true;
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pivotal.util;
+
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Remembers the next occurrence of some markup, so looking ahead for it from
+ * every position of a text is linear in the length of the text. The positions
+ * passed to {@link #next(int)} must not decrease.
+ *
+ * @author Rob Winch
+ *
+ */
+class Lookahead {
+	private final IntUnaryOperator indexOf;
+
+	private int next = -2;
+
+	Lookahead(IntUnaryOperator indexOf) {
+		this.indexOf = indexOf;
+	}
+
+	static Lookahead indexOf(String text, String str) {
+		return new Lookahead(from -> text.indexOf(str, from));
+	}
+
+	static Lookahead lineTerminators(String text) {
+		return new Lookahead(from -> {
+			for(int i = from; i < text.length(); i++) {
+				if(isLineTerminator(text.charAt(i))) {
+					return i;
+				}
+			}
+			return -1;
+		});
+	}
+
+	/**
+	 * The characters that end a line for the "." of a regular expression.
+	 */
+	static boolean isLineTerminator(char c) {
+		return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+	}
+
+	/**
+	 * The index of the first occurrence at or after from, or -1 if none.
+	 */
+	int next(int from) {
+		if(next != -1 && next < from) {
+			next = indexOf.applyAsInt(from);
+		}
+		return next;
+	}
+
+	/**
+	 * True if there is no line terminator between start (inclusive) and end
+	 * (exclusive). Only valid for a {@link #lineTerminators(String)} lookahead.
+	 */
+	boolean isSameLine(int start, int end) {
+		int lineEnd = next(start);
+		return lineEnd < 0 || end <= lineEnd;
+	}
+}
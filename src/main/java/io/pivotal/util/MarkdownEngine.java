@@ -15,6 +15,9 @@
  */
 package io.pivotal.util;
 
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
@@ -23,12 +26,22 @@ import io.pivotal.jira.JiraConfig;
 import lombok.Data;
 
 /**
+ * Converts JIRA wiki markup to GitHub flavored markdown. The text is walked a
+ * single time, so large bodies are not copied once per construct that is
+ * converted.
+ *
  * @author Rob Winch
  *
  */
 @Data
 @Component
 public class MarkdownEngine implements MarkupEngine {
+	private static final Pattern CODE_BLOCK = Pattern.compile("\\{(code|noformat)(:(\\w+))?(?:(:|\\|)\\w+=.+?)*\\}");
+
+	private static final Pattern USER_MENTION = Pattern.compile("\\[~(\\w+)\\]");
+
+	private static final String QUOTE = "{quote}";
+
 	String jiraBaseUrl;
 
 	@Autowired
@@ -46,32 +59,246 @@ public class MarkdownEngine implements MarkupEngine {
 		if(!StringUtils.hasLength(text)) {
 			return "";
 		}
-		text = header(text);
-		text = text.replaceAll("\\{(code|noformat)(:(\\w+))?(?:(:|\\|)\\w+=.+?)*\\}","```$3 ");
-		text = text.replaceAll("(```\\w*) (.+)", "$1\n$2");
-		text = text.replaceAll("(.)(```) ", "$1\n$2");
-		text = text.replaceAll("\\[(.+?)\\|(http.*?)\\]","[$1]($2)");
-		text = text.replaceAll("\\{\\{(.+?)\\}\\}","`$1`");
-		text = quote(text);
-		return text.replaceAll("\\[~([\\w]+)\\]", "[$1](" + jiraBaseUrl + "/secure/ViewProfile.jspa?name=$1)");
+		return new Converter(text).convert();
 	}
 
-	public String header(String text) {
-		text = text.replaceAll("^h1. ", "# ");
-		text = text.replaceAll("^h2. ", "## ");
-		text = text.replaceAll("^h3. ", "### ");
-		text = text.replaceAll("^h4. ", "#### ");
-		text = text.replaceAll("^h5. ", "##### ");
-		text = text.replaceAll("^h6. ", "###### ");
-		return text;
-	}
+	/**
+	 * Converts a single body. Links and inline code are converted by remembering
+	 * where their closing markup is, so the text in between is still converted
+	 * as it is walked.
+	 */
+	private class Converter {
+		private final String text;
+
+		private final int length;
+
+		private final StringBuilder result;
+
+		private final Matcher codeBlock;
+
+		private final Matcher userMention;
+
+		/**
+		 * The last character written, ignoring the markers added to quoted lines.
+		 */
+		private char previous = '\n';
+
+		/**
+		 * True if a code block earlier on the current line already moved the rest
+		 * of the line on to a new line.
+		 */
+		private boolean restOfLineMoved;
+
+		/**
+		 * The length of the result when a closing fence last swallowed the space
+		 * that follows it, which means the fence cannot precede another fence.
+		 */
+		private int fenceEnd = -1;
+
+		private boolean quoted;
+
+		private int linkSeparator = -1;
+
+		private int linkEnd = -1;
+
+		private int inlineCodeEnd = -1;
+
+		private final Lookahead linkSeparators;
+
+		private final Lookahead closingBrackets;
+
+		private final Lookahead closingBraces;
+
+		private final Lookahead lineTerminators;
+
+		Converter(String text) {
+			this.text = text;
+			this.length = text.length();
+			this.result = new StringBuilder(length + 16);
+			this.codeBlock = CODE_BLOCK.matcher(text);
+			this.userMention = USER_MENTION.matcher(text);
+			this.linkSeparators = Lookahead.indexOf(text, "|http");
+			this.closingBrackets = Lookahead.indexOf(text, "]");
+			this.closingBraces = Lookahead.indexOf(text, "}}");
+			this.lineTerminators = Lookahead.lineTerminators(text);
+		}
 
-	public static String quote(String str) {
-		String[] parts = str.split("\\{quote\\}");
+		String convert() {
+			int i = header();
+			while(i < length) {
+				char c = text.charAt(i);
+				if(i == linkSeparator) {
+					append("](");
+					i++;
+				} else if(i == linkEnd) {
+					append(")");
+					linkEnd = -1;
+					i++;
+				} else if(i == inlineCodeEnd) {
+					append("`");
+					inlineCodeEnd = -1;
+					i += 2;
+				} else if(c == '{') {
+					i = openBrace(i);
+				} else if(c == '[') {
+					i = openBracket(i);
+				} else if(c == '\n') {
+					restOfLineMoved = false;
+					newLine();
+					i++;
+				} else {
+					if(Lookahead.isLineTerminator(c)) {
+						restOfLineMoved = false;
+					}
+					append(c);
+					i++;
+				}
+			}
+			return result.toString();
+		}
+
+		/**
+		 * Converts "h1. " through "h6. " at the start of the text and returns the
+		 * index to continue from.
+		 */
+		private int header() {
+			if(length < 4 || text.charAt(0) != 'h' || text.charAt(3) != ' ' || Lookahead.isLineTerminator(text.charAt(2))) {
+				return 0;
+			}
+			char level = text.charAt(1);
+			if(level < '1' || level > '6') {
+				return 0;
+			}
+			for(char h = '1'; h <= level; h++) {
+				result.append('#');
+			}
+			append(" ");
+			return 4;
+		}
+
+		private int openBrace(int i) {
+			if(text.startsWith(QUOTE, i)) {
+				return quote(i);
+			}
+			if(codeBlock.region(i, length).lookingAt()) {
+				codeBlock(codeBlock.group(3), codeBlock.end());
+				return skipTo(codeBlock.end());
+			}
+			if(inlineCodeEnd < 0 && text.startsWith("{{", i) && !codeBlock.region(i + 1, length).lookingAt()) {
+				int end = closingBraces.next(i + 3);
+				if(end > 0 && isSameLine(i, end) && !containsCodeBlock(i, end)) {
+					append("`");
+					inlineCodeEnd = end;
+					return i + 2;
+				}
+			}
+			append('{');
+			return i + 1;
+		}
+
+		private int openBracket(int i) {
+			if(linkEnd < 0) {
+				int separator = linkSeparators.next(i + 2);
+				int end = separator < 0 ? -1 : closingBrackets.next(separator + 5);
+				if(end > 0 && isSameLine(i, end) && !containsCodeBlock(i, end)) {
+					linkSeparator = separator;
+					linkEnd = end;
+				}
+			}
+			if(userMention.region(i, length).lookingAt() && (linkEnd < 0 || linkEnd >= userMention.end())) {
+				String username = userMention.group(1);
+				append("[" + username + "](" + jiraBaseUrl + "/secure/ViewProfile.jspa?name=" + username + ")");
+				return skipTo(userMention.end());
+			}
+			append('[');
+			return i + 1;
+		}
+
+		private void codeBlock(String language, int end) {
+			String fence = "```" + (language == null ? "" : language);
+			if(end < length && !Lookahead.isLineTerminator(text.charAt(end)) && !restOfLineMoved) {
+				append(fence);
+				newLine();
+				restOfLineMoved = true;
+			} else if(language == null && !Lookahead.isLineTerminator(previous) && result.length() != fenceEnd) {
+				newLine();
+				append(fence);
+				fenceEnd = result.length();
+			} else {
+				append(fence);
+				append(" ");
+			}
+		}
+
+		private int quote(int i) {
+			int next = i + QUOTE.length();
+			if(!quoted && isOnlyQuotes(next)) {
+				// like String.split, trailing empty quotes are dropped
+				return length;
+			}
+			quoted = !quoted;
+			if(quoted) {
+				result.append("\n > ");
+			}
+			previous = '}';
+			fenceEnd = -1;
+			return next;
+		}
+
+		/**
+		 * Forgets any closing markup that was consumed by the markup ending at next.
+		 */
+		private int skipTo(int next) {
+			if(linkEnd >= 0 && linkEnd < next) {
+				linkEnd = -1;
+			}
+			if(inlineCodeEnd >= 0 && inlineCodeEnd < next) {
+				inlineCodeEnd = -1;
+			}
+			return next;
+		}
+
+		private boolean isOnlyQuotes(int i) {
+			for(; i < length; i += QUOTE.length()) {
+				if(!text.startsWith(QUOTE, i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Code blocks are converted before links and inline code, so markup that
+		 * contains a code block is not a link or inline code.
+		 */
+		private boolean containsCodeBlock(int start, int end) {
+			for(int i = text.indexOf('{', start + 1); i >= 0 && i < end; i = text.indexOf('{', i + 1)) {
+				if(codeBlock.region(i, length).lookingAt()) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private boolean isSameLine(int start, int end) {
+			return lineTerminators.isSameLine(start, end);
+		}
+
+		private void newLine() {
+			append('\n');
+			if(quoted) {
+				result.append("> ");
+			}
+		}
+
+		private void append(char c) {
+			result.append(c);
+			previous = c;
+		}
 
-		for(int i=1;i<parts.length;i+=2) {
-		    parts[i] = "\n > " + parts[i].replaceAll("\n","\n> ");
+		private void append(String s) {
+			result.append(s);
+			previous = s.charAt(s.length() - 1);
 		}
-		return StringUtils.arrayToDelimitedString(parts, "");
 	}
 }
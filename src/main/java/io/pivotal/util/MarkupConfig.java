@@ -0,0 +1,39 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pivotal.util;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Data;
+
+/**
+ * The settings of the {@link MarkupManager}.
+ *
+ * @author Rob Winch
+ *
+ */
+@Component
+@ConfigurationProperties(prefix="markup")
+@Data
+public class MarkupConfig {
+	/**
+	 * The maximum number of characters of converted text that are cached, so
+	 * converting the same text again (i.e. templated descriptions or bot
+	 * comments) is free. If 0, nothing is cached.
+	 */
+	long cacheSize = 8 * 1024 * 1024;
+}
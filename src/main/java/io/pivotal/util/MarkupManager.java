@@ -19,23 +19,90 @@ import org.joda.time.DateTime;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+
 /**
+ * Picks the {@link MarkupEngine} for a JIRA body. The conversions are cached
+ * (see {@link MarkupConfig#getCacheSize()}), since many issues share the same
+ * templated descriptions or bot comments.
+ *
  * @author Rob Winch
  *
  */
 @Component
 public class MarkupManager {
+	final MarkdownEngine markdown;
+
+	final TextileEngine textile;
+
+	private ConversionCache cache = new ConversionCache(new MarkupConfig().getCacheSize());
+
+	private final MarkupEngine cachedMarkdown;
+
+	private final MarkupEngine cachedTextile;
+
+	@Autowired
+	public MarkupManager(MarkdownEngine markdown, TextileEngine textile) {
+		this.markdown = markdown;
+		this.textile = textile;
+		this.cachedMarkdown = new CachingEngine("markdown", markdown);
+		this.cachedTextile = new CachingEngine("textile", textile);
+	}
+
 	@Autowired
-	MarkdownEngine markdown;
+	public void setMarkupConfig(MarkupConfig config) {
+		this.cache = new ConversionCache(config.getCacheSize());
+	}
 
+	/**
+	 * Records the hits, misses, hit ratio and size of the conversion cache as
+	 * "markup.cache.*" gauges.
+	 */
 	@Autowired
-	TextileEngine textile;
+	public void setMetrics(MigrationMetrics metrics) {
+		MetricRegistry registry = metrics.getRegistry();
+		registry.register("markup.cache.hits", (Gauge<Long>) () -> cache.getHits());
+		registry.register("markup.cache.misses", (Gauge<Long>) () -> cache.getMisses());
+		registry.register("markup.cache.hit-ratio", new RatioGauge() {
+			@Override
+			protected Ratio getRatio() {
+				return Ratio.of(cache.getHits(), cache.getHits() + cache.getMisses());
+			}
+		});
+		registry.register("markup.cache.size", (Gauge<Long>) () -> cache.getSize());
+	}
 
 	public MarkupEngine engine(DateTime date) {
-		return isMarkDown(date) ? markdown : textile;
+		return isMarkDown(date) ? cachedMarkdown : cachedTextile;
 	}
 
 	private static boolean isMarkDown(DateTime date) {
 		return date.isAfter(DateTime.parse("2009-04-20T19:00:00Z"));
 	}
+
+	private class CachingEngine implements MarkupEngine {
+		private final String name;
+
+		private final MarkupEngine engine;
+
+		CachingEngine(String name, MarkupEngine engine) {
+			this.name = name;
+			this.engine = engine;
+		}
+
+		@Override
+		public String link(String text, String href) {
+			return engine.link(text, href);
+		}
+
+		@Override
+		public String convert(String text) {
+			if(text == null || text.isEmpty()) {
+				return engine.convert(text);
+			}
+			return cache.convert(name, text, engine::convert);
+		}
+	}
 }
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pivotal.util;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Data;
+
+/**
+ * The settings of the {@link MigrationMetrics}.
+ *
+ * @author Rob Winch
+ *
+ */
+@Component
+@ConfigurationProperties(prefix="metrics")
+@Data
+public class MetricsConfig {
+	/**
+	 * The number of seconds between printing the metrics while the migration
+	 * runs. If 0, the metrics are only printed once the migration is done.
+	 */
+	long reportInterval;
+
+	/**
+	 * The number of seconds between printing the progress (throughput, ETA and
+	 * rate limit) of the current phase. If 0, the progress is only printed once a
+	 * phase is done.
+	 */
+	long progressInterval = 30;
+}
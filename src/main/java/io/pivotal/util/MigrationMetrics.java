@@ -0,0 +1,173 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pivotal.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Component;
+
+import com.codahale.metrics.ConsoleReporter;
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+/**
+ * Records where the time of a migration is spent: how long each phase takes,
+ * the latency of the requests to GitHub and JIRA, the time spent waiting on the
+ * GitHub rate limits and the number of retries and bytes sent.
+ *
+ * <p>
+ * The requests are named after their method and path, leaving out the
+ * repository (or JIRA API) prefix and replacing any segment that contains a
+ * digit with "n". For example, polling the status of an import is recorded as
+ * "github.GET.import.issues.n".
+ * </p>
+ *
+ * @author Rob Winch
+ *
+ */
+@Component
+public class MigrationMetrics implements Closeable {
+	private static final Pattern API_PREFIX = Pattern.compile("^.*?(/repos/[^/]+/[^/]+|/rest/api/\\d+)(?=/|$)");
+
+	private final MetricRegistry registry = new MetricRegistry();
+
+	private final ConsoleReporter reporter = ConsoleReporter.forRegistry(registry)
+			.convertRatesTo(TimeUnit.SECONDS)
+			.convertDurationsTo(TimeUnit.MILLISECONDS)
+			.outputTo(System.out)
+			.build();
+
+	private long reportInterval;
+
+	private long progressInterval = 30;
+
+	@Autowired
+	public void setMetricsConfig(MetricsConfig config) {
+		this.reportInterval = config.getReportInterval();
+		this.progressInterval = config.getProgressInterval();
+	}
+
+	@PostConstruct
+	public void startReporting() {
+		if(reportInterval > 0) {
+			reporter.start(reportInterval, TimeUnit.SECONDS);
+		}
+	}
+
+	/**
+	 * Starts timing a phase of the migration. The phase ends when the returned
+	 * context is closed.
+	 */
+	public Timer.Context phase(String name) {
+		return registry.timer("phase." + name).time();
+	}
+
+	/**
+	 * Starts reporting the progress of a phase every
+	 * {@link MetricsConfig#getProgressInterval()} seconds until the returned
+	 * {@link Progress} is closed.
+	 *
+	 * @param total the number of items in the phase or -1 if unknown
+	 * @param status any additional status to print or null
+	 */
+	public Progress progress(String phase, long total, Supplier<String> status) {
+		return new Progress(phase, total, progressInterval, status);
+	}
+
+	public Timer timer(String name) {
+		return registry.timer(name);
+	}
+
+	public Counter counter(String name) {
+		return registry.counter(name);
+	}
+
+	public Meter meter(String name) {
+		return registry.meter(name);
+	}
+
+	public MetricRegistry getRegistry() {
+		return registry;
+	}
+
+	/**
+	 * Executes and records a request. This is meant to be called from a
+	 * {@link org.springframework.http.client.ClientHttpRequestInterceptor} so
+	 * that any time spent before the request is sent is not counted.
+	 *
+	 * @param client the prefix of the metrics (i.e. "github" or "jira")
+	 */
+	public ClientHttpResponse execute(String client, HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+		counter(client + ".bytes-sent").inc(body.length);
+		Timer.Context time = timer(client + "." + request.getMethod() + "." + requestName(request)).time();
+		try {
+			ClientHttpResponse response = execution.execute(request, body);
+			if(response.getRawStatusCode() >= 400) {
+				counter(client + ".responses." + response.getRawStatusCode()).inc();
+			}
+			return response;
+		} catch(IOException e) {
+			counter(client + ".failures").inc();
+			throw e;
+		} finally {
+			time.stop();
+		}
+	}
+
+	/**
+	 * Prints every metric.
+	 */
+	public void report() {
+		reporter.report();
+	}
+
+	@Override
+	@PreDestroy
+	public void close() {
+		reporter.stop();
+	}
+
+	static String requestName(HttpRequest request) {
+		String path = request.getURI().getPath();
+		Matcher prefix = API_PREFIX.matcher(path);
+		if(prefix.find()) {
+			path = path.substring(prefix.end());
+		}
+		List<String> segments = new ArrayList<>();
+		for(String segment : path.split("/")) {
+			if(!segment.isEmpty()) {
+				segments.add(segment.matches(".*\\d.*") ? "n" : segment);
+			}
+		}
+		return segments.isEmpty() ? "root" : String.join(".", segments);
+	}
+}
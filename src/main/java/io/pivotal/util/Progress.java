@@ -0,0 +1,151 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pivotal.util;
+
+import java.io.Closeable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Prints the progress of a phase of the migration at a fixed interval: how much
+ * is done, the throughput since the phase started and since the last report,
+ * and when the phase is expected to finish. The ETA uses the recent throughput
+ * since that is what reflects the current rate limits.
+ *
+ * @author Rob Winch
+ *
+ */
+public class Progress implements Closeable {
+	private final String phase;
+
+	private final long total;
+
+	private final Supplier<String> status;
+
+	private final LongSupplier clock;
+
+	private final long startMillis;
+
+	private final AtomicLong completed = new AtomicLong();
+
+	private final ScheduledExecutorService scheduler;
+
+	private long lastReportMillis;
+
+	private long lastReportCompleted;
+
+	/**
+	 * @param phase what is being done (i.e. "Imported")
+	 * @param total the number of items in the phase or -1 if unknown
+	 * @param intervalSeconds the seconds between reports or 0 to only report
+	 * when the phase is done
+	 * @param status any additional status to print (i.e. the rate limit) or null
+	 */
+	public Progress(String phase, long total, long intervalSeconds, Supplier<String> status) {
+		this(phase, total, status, System::currentTimeMillis);
+		if(intervalSeconds > 0) {
+			scheduler.scheduleAtFixedRate(this::report, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+		}
+	}
+
+	Progress(String phase, long total, Supplier<String> status, LongSupplier clock) {
+		this.phase = phase;
+		this.total = total;
+		this.status = status;
+		this.clock = clock;
+		this.startMillis = clock.getAsLong();
+		this.lastReportMillis = startMillis;
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "progress");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	public void completed() {
+		completed.incrementAndGet();
+	}
+
+	public void completed(long count) {
+		completed.addAndGet(count);
+	}
+
+	public long getCompleted() {
+		return completed.get();
+	}
+
+	public void report() {
+		System.out.println(format());
+	}
+
+	/**
+	 * Stops reporting and prints the final progress.
+	 */
+	@Override
+	public void close() {
+		scheduler.shutdownNow();
+		report();
+	}
+
+	synchronized String format() {
+		long now = clock.getAsLong();
+		long done = completed.get();
+		double rate = perSecond(done, now - startMillis);
+		double recentRate = now == lastReportMillis ? rate : perSecond(done - lastReportCompleted, now - lastReportMillis);
+		lastReportMillis = now;
+		lastReportCompleted = done;
+
+		StringBuilder progress = new StringBuilder(phase).append(' ').append(done);
+		if(total >= 0) {
+			progress.append(" of ").append(total).append(" (").append(total == 0 ? 100 : done * 100 / total).append("%)");
+		}
+		progress.append(" in ").append(duration(now - startMillis))
+			.append(String.format(", %.1f/s (%.1f/s recently)", rate, recentRate));
+		if(total >= 0 && done < total) {
+			double etaRate = recentRate > 0 ? recentRate : rate;
+			progress.append(", ETA ").append(etaRate > 0 ? duration((long) ((total - done) / etaRate * 1000)) : "unknown");
+		}
+		String extra = status == null ? null : status.get();
+		if(extra != null) {
+			progress.append("; ").append(extra);
+		}
+		return progress.toString();
+	}
+
+	private static double perSecond(long count, long millis) {
+		return millis <= 0 ? 0 : count * 1000.0 / millis;
+	}
+
+	/**
+	 * Formats the duration like 1h02m03s.
+	 */
+	public static String duration(long millis) {
+		long seconds = Math.max(millis, 0) / 1000;
+		long hours = seconds / 3600;
+		long minutes = seconds / 60 % 60;
+		if(hours > 0) {
+			return String.format("%dh%02dm%02ds", hours, minutes, seconds % 60);
+		}
+		if(minutes > 0) {
+			return String.format("%dm%02ds", minutes, seconds % 60);
+		}
+		return (seconds % 60) + "s";
+	}
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pivotal.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import javax.annotation.PreDestroy;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * A single pool of keep-alive connections that is shared by every request to
+ * GitHub and JIRA, so connections (and their TLS handshakes) are reused across
+ * the whole migration.
+ *
+ * @author Rob Winch
+ *
+ */
+@Component
+public class SharedHttpClient implements Closeable {
+	/**
+	 * A pooled connection that has been idle for longer than this is checked
+	 * before it is reused, since the server may have closed it.
+	 */
+	static final int VALIDATE_AFTER_INACTIVITY_MILLIS = 2000;
+
+	private final CloseableHttpClient httpClient;
+
+	private final ClientHttpRequestFactory requestFactory;
+
+	@Autowired
+	public SharedHttpClient(HttpConfig config) {
+		PoolingHttpClientConnectionManager connections = new PoolingHttpClientConnectionManager();
+		connections.setMaxTotal(config.getMaxConnections());
+		connections.setDefaultMaxPerRoute(config.getMaxConnectionsPerRoute());
+		connections.setValidateAfterInactivity(VALIDATE_AFTER_INACTIVITY_MILLIS);
+
+		RequestConfig requestConfig = RequestConfig.custom()
+				.setConnectTimeout(config.getConnectTimeout())
+				.setConnectionRequestTimeout(config.getConnectTimeout())
+				.setSocketTimeout(config.getReadTimeout())
+				.build();
+
+		HttpClientBuilder builder = HttpClients.custom()
+				.setConnectionManager(connections)
+				.setDefaultRequestConfig(requestConfig);
+		if(!config.isCompression()) {
+			builder.disableContentCompression();
+		}
+		this.httpClient = builder.build();
+		this.requestFactory = new HttpComponentsClientHttpRequestFactory(httpClient);
+	}
+
+	public ClientHttpRequestFactory getRequestFactory() {
+		return requestFactory;
+	}
+
+	@Override
+	@PreDestroy
+	public void close() throws IOException {
+		httpClient.close();
+	}
+}
@@ -15,6 +15,10 @@
  */
 package io.pivotal.util;
 
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
@@ -25,12 +29,28 @@ import lombok.Data;
 /**
  * http://redcloth.org/textile
  *
+ * <p>
+ * The text is walked a single time. Each thread reuses the same buffers and
+ * matchers, so converting a comment only allocates the resulting String.
+ * </p>
+ *
  * @author Rob Winch
  *
  */
 @Data
 @Component
 public class TextileEngine implements MarkupEngine {
+	private static final Pattern BLOCK = Pattern.compile("\\{(quote|noformat|code).*?\\}");
+
+	private static final Pattern USER_MENTION = Pattern.compile("\\[~(\\w+)\\]");
+
+	/**
+	 * Buffers larger than this are not kept for the next conversion.
+	 */
+	private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+	private static final ThreadLocal<Converter> CONVERTERS = ThreadLocal.withInitial(Converter::new);
+
 	String jiraBaseUrl;
 
 	@Autowired
@@ -48,26 +68,214 @@ public class TextileEngine implements MarkupEngine {
 		if (!StringUtils.hasLength(text)) {
 			return "";
 		}
-		text = blockCode(text);
-		text = text.replaceAll("\\[(.+?)\\|(http.*?)\\]","[\"$1\":$2]");
-		text = text.replaceAll("\\{\\{(.+?)\\}\\}", "@$1@");
-		return text.replaceAll("\\[~([\\w]+)\\]", "[\"$1\":" + jiraBaseUrl + "/secure/ViewProfile.jspa?name=$1]");
+		return CONVERTERS.get().convert(text, jiraBaseUrl);
 	}
 
-	public static String blockCode(String str) {
-		String[] parts = str.split("\\{(quote|noformat|code).*?\\}");
-		if(parts.length == 1) {
-			return str;
+	/**
+	 * Converts a body. The {quote}, {noformat} and {code} blocks are found up
+	 * front since, like String.split, the trailing empty blocks are dropped and a
+	 * body that splits into a single part is not converted to blocks at all.
+	 */
+	private static class Converter {
+		private final StringBuilder result = new StringBuilder(1024);
+
+		private final Matcher block = BLOCK.matcher("");
+
+		private final Matcher userMention = USER_MENTION.matcher("");
+
+		/**
+		 * The start and end of each block, in pairs.
+		 */
+		private int[] blocks = new int[16];
+
+		private int blockCount;
+
+		/**
+		 * The number of parts that are kept between the blocks.
+		 */
+		private int parts;
+
+		private String text;
+
+		private int length;
+
+		private String jiraBaseUrl;
+
+		private int linkSeparator;
+
+		private int linkEnd;
+
+		private int inlineCodeEnd;
+
+		private Lookahead linkSeparators;
+
+		private Lookahead closingBrackets;
+
+		private Lookahead closingBraces;
+
+		private Lookahead lineTerminators;
+
+		String convert(String text, String jiraBaseUrl) {
+			reset(text, jiraBaseUrl);
+			try {
+				return convert();
+			} finally {
+				if(result.capacity() > MAX_RETAINED_CAPACITY) {
+					result.setLength(0);
+					result.trimToSize();
+				}
+				this.text = null;
+				this.linkSeparators = null;
+				this.closingBrackets = null;
+				this.closingBraces = null;
+				this.lineTerminators = null;
+				block.reset("");
+				userMention.reset("");
+			}
+		}
+
+		private void reset(String text, String jiraBaseUrl) {
+			this.text = text;
+			this.length = text.length();
+			this.jiraBaseUrl = jiraBaseUrl;
+			this.result.setLength(0);
+			this.linkSeparator = -1;
+			this.linkEnd = -1;
+			this.inlineCodeEnd = -1;
+			this.block.reset(text);
+			this.userMention.reset(text);
+			this.linkSeparators = Lookahead.indexOf(text, "|http");
+			this.closingBrackets = Lookahead.indexOf(text, "]");
+			this.closingBraces = Lookahead.indexOf(text, "}}");
+			this.lineTerminators = Lookahead.lineTerminators(text);
+			findBlocks();
 		}
-		StringBuffer result = new StringBuffer();
-		for (int i = 0; i < parts.length; i++) {
-			result.append(parts[i]);
-			if (i % 2 == 0) {
-				result.append("\nbc.. ");
-			} else {
-				result.append("\np. \n");
+
+		private void findBlocks() {
+			blockCount = 0;
+			int lastPart = -1;
+			int partStart = 0;
+			while(block.find()) {
+				if(block.start() > partStart) {
+					lastPart = blockCount;
+				}
+				if(blockCount * 2 == blocks.length) {
+					blocks = Arrays.copyOf(blocks, blocks.length * 2);
+				}
+				blocks[blockCount * 2] = block.start();
+				blocks[blockCount * 2 + 1] = block.end();
+				blockCount++;
+				partStart = block.end();
+			}
+			if(length > partStart) {
+				lastPart = blockCount;
+			}
+			parts = lastPart + 1;
+			if(parts == 1 || blockCount == 0) {
+				// nothing to split, so the blocks are left as they are
+				blockCount = 0;
+			}
+		}
+
+		private String convert() {
+			int nextBlock = 0;
+			int i = 0;
+			while(i < length) {
+				if(nextBlock < blockCount && i == blocks[nextBlock * 2]) {
+					endPart(nextBlock);
+					i = skipTo(blocks[nextBlock * 2 + 1]);
+					nextBlock++;
+					continue;
+				}
+				char c = text.charAt(i);
+				if(i == inlineCodeEnd) {
+					result.append('@');
+					inlineCodeEnd = -1;
+					i += 2;
+				} else if(i == linkSeparator) {
+					result.append("\":");
+					i++;
+				} else if(i == linkEnd) {
+					result.append(']');
+					linkEnd = -1;
+					i++;
+				} else if(c == '[') {
+					i = openBracket(i, nextBlock);
+				} else if(c == '{') {
+					i = openBrace(i, nextBlock);
+				} else {
+					result.append(c);
+					i++;
+				}
+			}
+			if(blockCount > 0 && parts > blockCount) {
+				endPart(blockCount);
+			}
+			return result.toString();
+		}
+
+		private void endPart(int part) {
+			if(part >= parts) {
+				return;
+			}
+			result.append(part % 2 == 0 ? "\nbc.. " : "\np. \n");
+		}
+
+		private int openBracket(int i, int nextBlock) {
+			if(linkEnd < 0) {
+				int separator = linkSeparators.next(i + 2);
+				int end = separator < 0 ? -1 : closingBrackets.next(separator + 5);
+				if(end > 0 && isSameLine(i, end) && !isBlockBefore(end, nextBlock)) {
+					// the text of the link is still converted as it is walked
+					result.append("[\"");
+					linkSeparator = separator;
+					linkEnd = end;
+					return i + 1;
+				}
 			}
+			if(userMention.region(i, length).lookingAt()) {
+				String username = userMention.group(1);
+				result.append("[\"").append(username).append("\":").append(jiraBaseUrl)
+					.append("/secure/ViewProfile.jspa?name=").append(username).append(']');
+				return skipTo(userMention.end());
+			}
+			result.append('[');
+			return i + 1;
+		}
+
+		private int openBrace(int i, int nextBlock) {
+			if(inlineCodeEnd < 0 && text.startsWith("{{", i)) {
+				int end = closingBraces.next(i + 3);
+				if(end > 0 && isSameLine(i, end) && !isBlockBefore(end + 2, nextBlock)) {
+					result.append('@');
+					inlineCodeEnd = end;
+					return i + 2;
+				}
+			}
+			result.append('{');
+			return i + 1;
+		}
+
+		/**
+		 * True if the next block starts before end, which means the markup is split
+		 * by the block.
+		 */
+		private boolean isBlockBefore(int end, int nextBlock) {
+			return nextBlock < blockCount && blocks[nextBlock * 2] < end;
+		}
+
+		private int skipTo(int next) {
+			if(linkEnd >= 0 && linkEnd < next) {
+				linkEnd = -1;
+			}
+			if(inlineCodeEnd >= 0 && inlineCodeEnd < next) {
+				inlineCodeEnd = -1;
+			}
+			return next;
+		}
+
+		private boolean isSameLine(int start, int end) {
+			return lineTerminators.isSameLine(start, end);
 		}
-		return result.toString();
 	}
 }
@@ -0,0 +1,692 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pivotal.github;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import lombok.Data;
+
+/**
+ * An in memory stand-in for the parts of the GitHub API that
+ * {@link GithubClient} uses, so full size migrations can be run repeatedly
+ * without touching GitHub. It serves a single repository, listens on
+ * localhost and answers under /api/v3 like GitHub Enterprise, so point
+ * {@link GithubConfig#getApiUrl()} at {@link #getApiUrl()}.
+ *
+ * <p>
+ * Every response carries X-RateLimit-* headers. Once the configured rate limit
+ * of a token is used up, its requests are rejected with a 403 until the window
+ * resets. Every
+ * n-th request can also be rejected with an abuse rate limit 403.
+ * </p>
+ *
+ * @author Rob Winch
+ *
+ */
+public class FakeGithubServer implements Closeable {
+	static final String API_PREFIX = "/api/v3";
+
+	static final String ABUSE_DOCUMENTATION_URL = "https://developer.github.com/v3/#abuse-rate-limits";
+
+	private static final Pattern REPOSITORY = Pattern.compile("/repos/([^/]+/[^/]+)(/.*)?");
+
+	private static final Pattern IMPORT_STATUS = Pattern.compile("/import/issues/(\\d+)");
+
+	private static final Pattern ISSUE_COMMENTS = Pattern.compile("/issues/(\\d+)/comments");
+
+	private static final Pattern ISSUE = Pattern.compile("/issues/(\\d+)");
+
+	private static final Pattern ISSUE_LABELS = Pattern.compile("/issues/(\\d+)/labels");
+
+	private static final Pattern ISSUE_LABEL = Pattern.compile("/issues/(\\d+)/labels/(.+)");
+
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	private final HttpServer server;
+
+	private final ExecutorService executor;
+
+	private volatile long latencyMillis;
+
+	private volatile long importDelayMillis;
+
+	private volatile int rateLimit = 5000;
+
+	private volatile long rateLimitWindowMillis = TimeUnit.HOURS.toMillis(1);
+
+	private volatile int abuseEvery;
+
+	private volatile boolean listsEmpty;
+
+	private volatile Integer rejectedImportMilestone;
+
+	private volatile int abuseRetryAfterSeconds = 1;
+
+	/**
+	 * Like GitHub, each token (Authorization header) is rate limited separately.
+	 */
+	private final Map<String, RateLimitWindow> rateLimitWindows = new ConcurrentHashMap<>();
+
+	private final AtomicInteger requests = new AtomicInteger();
+
+	private final AtomicInteger rejected = new AtomicInteger();
+
+	private final Map<String, Map<String, Object>> milestones = new ConcurrentHashMap<>();
+
+	private final Map<String, Map<String, Object>> labels = new ConcurrentHashMap<>();
+
+	private final Map<Integer, Import> imports = new ConcurrentHashMap<>();
+
+	private final Map<Integer, Issue> issues = new ConcurrentHashMap<>();
+
+	private int nextIssueNumber = 1;
+
+	private volatile int foreignIssueEvery;
+
+	private volatile String rejectedImportTitle;
+
+	private int nextImportId = 1;
+
+	/**
+	 * Creates a server on the given port (0 picks a free port). The server
+	 * handles requests using the given number of threads.
+	 */
+	public FakeGithubServer(int port, int threads) throws IOException {
+		this.server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+		this.executor = Executors.newFixedThreadPool(threads, r -> {
+			Thread thread = new Thread(r, "fake-github");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.server.setExecutor(executor);
+		this.server.createContext("/", this::handle);
+	}
+
+	public FakeGithubServer start() {
+		server.start();
+		return this;
+	}
+
+	@Override
+	public void close() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+
+	public String getApiUrl() {
+		return "http://localhost:" + server.getAddress().getPort() + API_PREFIX;
+	}
+
+	/**
+	 * The time each response is delayed by, to simulate the round trip to GitHub.
+	 */
+	public void setLatencyMillis(long latencyMillis) {
+		this.latencyMillis = latencyMillis;
+	}
+
+	/**
+	 * How long an import stays pending before its issue number is reported.
+	 */
+	public void setImportDelayMillis(long importDelayMillis) {
+		this.importDelayMillis = importDelayMillis;
+	}
+
+	/**
+	 * Skips every n-th issue number (0 disables), as if someone else opened an
+	 * issue or pull request while the issues are imported.
+	 */
+	public void setForeignIssueEvery(int foreignIssueEvery) {
+		this.foreignIssueEvery = foreignIssueEvery;
+	}
+
+	/**
+	 * Rejects the imports of issues whose title starts with the given prefix
+	 * (null rejects none) with a 422, as if the issue was invalid.
+	 */
+	public void setRejectedImportTitle(String rejectedImportTitle) {
+		this.rejectedImportTitle = rejectedImportTitle;
+	}
+
+	/**
+	 * Rejects the imports of issues with the given milestone number (null
+	 * rejects none) with a 422.
+	 */
+	public void setRejectedImportMilestone(Integer rejectedImportMilestone) {
+		this.rejectedImportMilestone = rejectedImportMilestone;
+	}
+
+	/**
+	 * If true, milestones and labels are listed as empty, as if the existing ones
+	 * were created after they were listed.
+	 */
+	public void setListsEmpty(boolean listsEmpty) {
+		this.listsEmpty = listsEmpty;
+	}
+
+	/**
+	 * The number of requests that are allowed per window before requests are
+	 * rejected until X-RateLimit-Reset.
+	 */
+	public synchronized void setRateLimit(int rateLimit, long windowMillis) {
+		this.rateLimit = rateLimit;
+		this.rateLimitWindowMillis = windowMillis;
+		this.rateLimitWindows.clear();
+	}
+
+	/**
+	 * If greater than 0, every n-th request is rejected with an abuse rate limit.
+	 */
+	public void setAbuseEvery(int abuseEvery) {
+		this.abuseEvery = abuseEvery;
+	}
+
+	/**
+	 * The Retry-After sent with an abuse rate limit. If 0, no Retry-After is sent.
+	 */
+	public void setAbuseRetryAfterSeconds(int abuseRetryAfterSeconds) {
+		this.abuseRetryAfterSeconds = abuseRetryAfterSeconds;
+	}
+
+	public int getRequestCount() {
+		return requests.get();
+	}
+
+	/**
+	 * The number of requests that were rejected by the rate limit or abuse rate
+	 * limit.
+	 */
+	public int getRejectedCount() {
+		return rejected.get();
+	}
+
+	public Collection<String> getMilestoneTitles() {
+		return milestones.keySet();
+	}
+
+	/**
+	 * The number of the milestone with the title, or null if there is none.
+	 */
+	public Integer getMilestoneNumber(String title) {
+		Map<String, Object> milestone = milestones.get(title);
+		return milestone == null ? null : (Integer) milestone.get("number");
+	}
+
+	public Collection<String> getLabelNames() {
+		return labels.keySet();
+	}
+
+	/**
+	 * The issues that were imported (including the ones still pending) by
+	 * issue number.
+	 */
+	public Map<Integer, Issue> getIssues() {
+		return issues;
+	}
+
+	/**
+	 * Forgets the repository, as if it was deleted.
+	 */
+	public synchronized void reset() {
+		milestones.clear();
+		labels.clear();
+		imports.clear();
+		issues.clear();
+		nextIssueNumber = 1;
+		nextImportId = 1;
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		try {
+			requests.incrementAndGet();
+			if(latencyMillis > 0) {
+				Thread.sleep(latencyMillis);
+			}
+			if(!rateLimit(exchange)) {
+				return;
+			}
+			String path = exchange.getRequestURI().getPath();
+			if(path.startsWith(API_PREFIX)) {
+				path = path.substring(API_PREFIX.length());
+			}
+			String method = exchange.getRequestMethod();
+			if("POST".equals(method) && "/user/repos".equals(path)) {
+				reset();
+				respond(exchange, 201, body(exchange));
+				return;
+			}
+			Matcher repository = REPOSITORY.matcher(path);
+			if(!repository.matches()) {
+				notFound(exchange);
+				return;
+			}
+			handleRepository(exchange, method, repository.group(1), repository.group(2) == null ? "" : repository.group(2));
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch(RuntimeException e) {
+			respond(exchange, 500, message(e.toString()));
+		} finally {
+			exchange.close();
+		}
+	}
+
+	private void handleRepository(HttpExchange exchange, String method, String slug, String path) throws IOException {
+		Matcher importStatus = IMPORT_STATUS.matcher(path);
+		Matcher comments = ISSUE_COMMENTS.matcher(path);
+		Matcher issuePath = ISSUE.matcher(path);
+		Matcher issueLabels = ISSUE_LABELS.matcher(path);
+		Matcher issueLabel = ISSUE_LABEL.matcher(path);
+		if("DELETE".equals(method) && path.isEmpty()) {
+			reset();
+			respond(exchange, 204, null);
+		} else if("GET".equals(method) && "/commits".equals(path)) {
+			respond(exchange, 409, message("Git Repository is empty."));
+		} else if("GET".equals(method) && "/milestones".equals(path)) {
+			respond(exchange, 200, page(exchange, listsEmpty ? Collections.emptyList() : milestones.values()));
+		} else if("POST".equals(method) && "/milestones".equals(path)) {
+			Map<String, Object> milestone = createMilestone(body(exchange));
+			if(milestone == null) {
+				alreadyExists(exchange, "Milestone", "title");
+			} else {
+				respond(exchange, 201, milestone);
+			}
+		} else if("GET".equals(method) && "/labels".equals(path)) {
+			respond(exchange, 200, page(exchange, listsEmpty ? Collections.emptyList() : labels.values()));
+		} else if("POST".equals(method) && "/labels".equals(path)) {
+			Map<String, Object> label = createLabel(body(exchange));
+			if(label == null) {
+				alreadyExists(exchange, "Label", "name");
+			} else {
+				respond(exchange, 201, label);
+			}
+		} else if("GET".equals(method) && "/issues".equals(path)) {
+			List<Map<String, Object>> newestFirst = issues.values().stream()
+					.sorted(Comparator.comparingInt(Issue::getNumber).reversed())
+					.map(Issue::toResponse)
+					.collect(Collectors.toList());
+			respond(exchange, 200, page(exchange, newestFirst));
+		} else if("POST".equals(method) && "/import/issues".equals(path)) {
+			Map<String, Object> imported = createImport(exchange, slug);
+			if(imported == null) {
+				respond(exchange, 422, message("Validation Failed"));
+			} else {
+				respond(exchange, 202, imported);
+			}
+		} else if("GET".equals(method) && importStatus.matches()) {
+			Import imported = imports.get(Integer.valueOf(importStatus.group(1)));
+			if(imported == null) {
+				notFound(exchange);
+			} else {
+				respond(exchange, 200, imported.status());
+			}
+		} else if(("GET".equals(method) || "PATCH".equals(method)) && issuePath.matches()) {
+			Issue issue = issues.get(Integer.valueOf(issuePath.group(1)));
+			if(issue == null) {
+				notFound(exchange);
+				return;
+			}
+			if("PATCH".equals(method)) {
+				updateIssue(issue, body(exchange));
+			}
+			respond(exchange, 200, issue.toResponse());
+		} else if("POST".equals(method) && issueLabels.matches()) {
+			Issue issue = issues.get(Integer.valueOf(issueLabels.group(1)));
+			if(issue == null) {
+				notFound(exchange);
+				return;
+			}
+			issue.addLabels(listBody(exchange));
+			respond(exchange, 200, issue.toResponse().get("labels"));
+		} else if("DELETE".equals(method) && issueLabel.matches()) {
+			Issue issue = issues.get(Integer.valueOf(issueLabel.group(1)));
+			if(issue == null || !issue.removeLabel(issueLabel.group(2))) {
+				notFound(exchange);
+				return;
+			}
+			respond(exchange, 200, issue.toResponse().get("labels"));
+		} else if("POST".equals(method) && comments.matches()) {
+			Issue issue = issues.get(Integer.valueOf(comments.group(1)));
+			if(issue == null) {
+				notFound(exchange);
+				return;
+			}
+			String body = (String) body(exchange).get("body");
+			issue.getComments().add(body);
+			Map<String, Object> comment = new LinkedHashMap<>();
+			comment.put("body", body);
+			respond(exchange, 201, comment);
+		} else {
+			notFound(exchange);
+		}
+	}
+
+	/**
+	 * The page of the values selected by the page and per_page query parameters.
+	 */
+	private static List<Object> page(HttpExchange exchange, Collection<?> values) {
+		int page = 1;
+		int perPage = 30;
+		String query = exchange.getRequestURI().getQuery();
+		for(String parameter : query == null ? new String[0] : query.split("&")) {
+			String[] nameValue = parameter.split("=", 2);
+			if("page".equals(nameValue[0])) {
+				page = Integer.parseInt(nameValue[1]);
+			} else if("per_page".equals(nameValue[0])) {
+				perPage = Integer.parseInt(nameValue[1]);
+			}
+		}
+		List<Object> all = new ArrayList<>(values);
+		int from = Math.min((page - 1) * perPage, all.size());
+		return all.subList(from, Math.min(from + perPage, all.size()));
+	}
+
+	/**
+	 * Creates the milestone, or returns null if a milestone with the same title
+	 * already exists.
+	 */
+	private synchronized Map<String, Object> createMilestone(Map<String, Object> milestone) {
+		if(milestones.containsKey(milestone.get("title"))) {
+			return null;
+		}
+		milestone.put("number", milestones.size() + 1);
+		milestones.put((String) milestone.get("title"), milestone);
+		return milestone;
+	}
+
+	/**
+	 * Creates the label, or returns null if a label with the same name ignoring
+	 * case already exists.
+	 */
+	private synchronized Map<String, Object> createLabel(Map<String, Object> label) {
+		String name = (String) label.get("name");
+		if(labels.keySet().stream().anyMatch(name::equalsIgnoreCase)) {
+			return null;
+		}
+		labels.put(name, label);
+		return label;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static void updateIssue(Issue issue, Map<String, Object> update) {
+		if(update.containsKey("state")) {
+			issue.setClosed("closed".equals(update.get("state")));
+		}
+		if(update.containsKey("labels")) {
+			issue.setLabels((List<String>) update.get("labels"));
+		}
+	}
+
+	/**
+	 * Creates the import, or returns null if it is rejected.
+	 */
+	@SuppressWarnings("unchecked")
+	private Map<String, Object> createImport(HttpExchange exchange, String slug) throws IOException {
+		Map<String, Object> body = body(exchange);
+		Map<String, Object> ghIssue = (Map<String, Object>) body.get("issue");
+		List<Map<String, Object>> ghComments = (List<Map<String, Object>>) body.get("comments");
+		String rejected = rejectedImportTitle;
+		if(rejected != null && ((String) ghIssue.get("title")).startsWith(rejected)) {
+			return null;
+		}
+		Integer rejectedMilestone = rejectedImportMilestone;
+		if(rejectedMilestone != null && rejectedMilestone.equals(ghIssue.get("milestone"))) {
+			return null;
+		}
+
+		Issue issue = new Issue();
+		issue.setTitle((String) ghIssue.get("title"));
+		issue.setBody((String) ghIssue.get("body"));
+		issue.setMilestone((Integer) ghIssue.get("milestone"));
+		issue.setLabels((List<String>) ghIssue.get("labels"));
+		issue.setClosed(Boolean.TRUE.equals(ghIssue.get("closed")));
+		if(ghComments != null) {
+			for(Map<String, Object> comment : ghComments) {
+				issue.getComments().add((String) comment.get("body"));
+			}
+		}
+
+		Import imported;
+		synchronized (this) {
+			// like GitHub, the numbers are handed out in the order the imports are received
+			if(foreignIssueEvery > 0 && nextIssueNumber % foreignIssueEvery == 0) {
+				// someone else opened an issue or pull request in the meantime
+				nextIssueNumber++;
+			}
+			issue.setNumber(nextIssueNumber++);
+			imported = new Import(nextImportId++, issue.getNumber(), System.currentTimeMillis() + importDelayMillis, getApiUrl() + "/repos/" + slug);
+		}
+		issues.put(issue.getNumber(), issue);
+		imports.put(imported.id, imported);
+		return imported.status();
+	}
+
+	/**
+	 * Applies the rate limits to the request, returning false if it was rejected.
+	 */
+	private boolean rateLimit(HttpExchange exchange) throws IOException {
+		int remaining;
+		long reset;
+		String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+		RateLimitWindow window = rateLimitWindows.computeIfAbsent(authorization == null ? "" : authorization, a -> new RateLimitWindow());
+		synchronized (window) {
+			long now = System.currentTimeMillis();
+			if(now >= window.resetMillis) {
+				window.remaining = rateLimit;
+				window.resetMillis = now + rateLimitWindowMillis;
+			}
+			if(window.remaining > 0) {
+				window.remaining--;
+			}
+			remaining = window.remaining;
+			reset = window.resetMillis;
+		}
+		exchange.getResponseHeaders().set("X-RateLimit-Limit", String.valueOf(rateLimit));
+		exchange.getResponseHeaders().set("X-RateLimit-Remaining", String.valueOf(remaining));
+		exchange.getResponseHeaders().set("X-RateLimit-Reset", String.valueOf(TimeUnit.MILLISECONDS.toSeconds(reset + 999)));
+		int abuse = abuseEvery;
+		if(abuse > 0 && requests.get() % abuse == 0) {
+			rejected.incrementAndGet();
+			if(abuseRetryAfterSeconds > 0) {
+				exchange.getResponseHeaders().set("Retry-After", String.valueOf(abuseRetryAfterSeconds));
+			}
+			Map<String, Object> body = message("You have triggered an abuse detection mechanism. Please wait a few minutes before you try again.");
+			body.put("documentation_url", ABUSE_DOCUMENTATION_URL);
+			respond(exchange, 403, body);
+			return false;
+		}
+		if(remaining == 0) {
+			rejected.incrementAndGet();
+			respond(exchange, 403, message("API rate limit exceeded"));
+			return false;
+		}
+		return true;
+	}
+
+	@SuppressWarnings("unchecked")
+	private Map<String, Object> body(HttpExchange exchange) throws IOException {
+		return body(exchange, Map.class);
+	}
+
+	@SuppressWarnings("unchecked")
+	private List<String> listBody(HttpExchange exchange) throws IOException {
+		return body(exchange, List.class);
+	}
+
+	private <T> T body(HttpExchange exchange, Class<T> type) throws IOException {
+		InputStream requestBody = exchange.getRequestBody();
+		if("gzip".equals(exchange.getRequestHeaders().getFirst("Content-Encoding"))) {
+			requestBody = new GZIPInputStream(requestBody);
+		}
+		try (InputStream body = requestBody) {
+			return mapper.readValue(body, type);
+		}
+	}
+
+	private void notFound(HttpExchange exchange) throws IOException {
+		respond(exchange, 404, message("Not Found"));
+	}
+
+	private void alreadyExists(HttpExchange exchange, String resource, String field) throws IOException {
+		Map<String, Object> error = new LinkedHashMap<>();
+		error.put("resource", resource);
+		error.put("code", "already_exists");
+		error.put("field", field);
+		Map<String, Object> body = message("Validation Failed");
+		body.put("errors", Collections.singletonList(error));
+		respond(exchange, 422, body);
+	}
+
+	private static Map<String, Object> message(String message) {
+		Map<String, Object> body = new LinkedHashMap<>();
+		body.put("message", message);
+		return body;
+	}
+
+	private void respond(HttpExchange exchange, int status, Object body) throws IOException {
+		if(body == null) {
+			// the JDK server drops the connection after a response without a body
+			exchange.getResponseHeaders().set("Connection", "close");
+			exchange.sendResponseHeaders(status, -1);
+			return;
+		}
+		byte[] json = mapper.writeValueAsBytes(body);
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+		exchange.sendResponseHeaders(status, json.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(json);
+		}
+	}
+
+	/**
+	 * Starts a server on the port given as the first argument (default 8090)
+	 * until the process is killed.
+	 */
+	public static void main(String[] args) throws Exception {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : 8090;
+		FakeGithubServer server = new FakeGithubServer(port, 16).start();
+		System.out.println("Serving a fake GitHub API at " + server.getApiUrl());
+		Thread.currentThread().join();
+	}
+
+	/**
+	 * An issue that was imported.
+	 */
+	@Data
+	public static class Issue {
+		int number;
+		String title;
+		String body;
+		Integer milestone;
+		List<String> labels;
+		boolean closed;
+		final List<String> comments = new CopyOnWriteArrayList<>();
+
+		/**
+		 * Adds the labels the issue does not have yet.
+		 */
+		synchronized void addLabels(List<String> added) {
+			List<String> labels = this.labels == null ? new ArrayList<>() : new ArrayList<>(this.labels);
+			added.stream().filter(label -> !labels.contains(label)).forEach(labels::add);
+			this.labels = labels;
+		}
+
+		/**
+		 * Removes the label, or returns false if the issue does not have it.
+		 */
+		synchronized boolean removeLabel(String label) {
+			List<String> labels = this.labels == null ? new ArrayList<>() : new ArrayList<>(this.labels);
+			boolean removed = labels.remove(label);
+			this.labels = labels;
+			return removed;
+		}
+
+		/**
+		 * The issue as the GitHub API returns it.
+		 */
+		Map<String, Object> toResponse() {
+			Map<String, Object> response = new LinkedHashMap<>();
+			response.put("number", number);
+			response.put("title", title);
+			response.put("state", closed ? "closed" : "open");
+			List<Map<String, Object>> labelNames = new ArrayList<>();
+			for(String label : labels == null ? Collections.<String>emptyList() : labels) {
+				labelNames.add(Collections.singletonMap("name", label));
+			}
+			response.put("labels", labelNames);
+			return response;
+		}
+	}
+
+	private static class RateLimitWindow {
+		int remaining;
+
+		long resetMillis;
+	}
+
+	private static class Import {
+		final int id;
+
+		final int issueNumber;
+
+		final long importedAtMillis;
+
+		final String repositoryUrl;
+
+		Import(int id, int issueNumber, long importedAtMillis, String repositoryUrl) {
+			this.id = id;
+			this.issueNumber = issueNumber;
+			this.importedAtMillis = importedAtMillis;
+			this.repositoryUrl = repositoryUrl;
+		}
+
+		Map<String, Object> status() {
+			Map<String, Object> status = new LinkedHashMap<>();
+			status.put("id", id);
+			status.put("url", repositoryUrl + "/import/issues/" + id);
+			if(System.currentTimeMillis() < importedAtMillis) {
+				status.put("status", "pending");
+			} else {
+				status.put("status", "imported");
+				status.put("issue_url", repositoryUrl + "/issues/" + issueNumber);
+			}
+			return status;
+		}
+	}
+}
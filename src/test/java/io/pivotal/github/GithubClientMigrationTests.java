@@ -0,0 +1,610 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pivotal.github;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.web.client.HttpClientErrorException;
+
+import io.pivotal.github.FakeGithubServer.Issue;
+import io.pivotal.github.MigrationJournal.Phase;
+import io.pivotal.jira.IssueLink;
+import io.pivotal.jira.JiraComment;
+import io.pivotal.jira.JiraCommentPage;
+import io.pivotal.jira.JiraConfig;
+import io.pivotal.jira.JiraFixVersion;
+import io.pivotal.jira.JiraIssue;
+import io.pivotal.jira.JiraIssueType;
+import io.pivotal.jira.JiraResolution;
+import io.pivotal.jira.JiraStatus;
+import io.pivotal.jira.JiraUser;
+import io.pivotal.jira.JiraVersion;
+import io.pivotal.util.HttpConfig;
+import io.pivotal.util.MarkdownEngine;
+import io.pivotal.util.MarkupManager;
+import io.pivotal.util.SharedHttpClient;
+import io.pivotal.util.TextileEngine;
+
+/**
+ * Migrates issues with {@link GithubClient} against a {@link FakeGithubServer}.
+ *
+ * @author Rob Winch
+ *
+ */
+public class GithubClientMigrationTests {
+	static final String JIRA_BASE_URL = "https://jira.example.com";
+
+	static final DateTime CREATED = DateTime.parse("2015-06-02T10:15:30Z");
+
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	FakeGithubServer server;
+
+	SharedHttpClient http;
+
+	GithubConfig config;
+
+	MigrationJournal journal;
+
+	GithubClient github;
+
+	@Before
+	public void setup() throws IOException, InterruptedException {
+		server = new FakeGithubServer(0, 8).start();
+
+		config = new GithubConfig();
+		config.setApiUrl(server.getApiUrl());
+		config.setRepositorySlug("rwinch/migration-test");
+		config.setAccessToken("token");
+		config.setRequestsPerSecond(0);
+		config.setWritesPerSecond(0);
+
+		JiraConfig jiraConfig = new JiraConfig();
+		jiraConfig.setBaseUrl(JIRA_BASE_URL);
+		MarkdownEngine markdown = new MarkdownEngine();
+		markdown.setJiraBaseUrl(JIRA_BASE_URL);
+		TextileEngine textile = new TextileEngine();
+		textile.setJiraBaseUrl(JIRA_BASE_URL);
+
+		journal = new MigrationJournal();
+		github = new GithubClient();
+		github.setConfig(config);
+		github.setJiraConfig(jiraConfig);
+		github.setMarkup(new MarkupManager(markdown, textile));
+		github.setJiraUsernameToGithubUsername(Collections.emptyMap());
+		github.setJournal(journal);
+		http = new SharedHttpClient(new HttpConfig());
+		github.setSharedHttpClient(http);
+		github.configureTokens();
+
+		github.createMilestones(Arrays.asList(version("1.0"), version("1.1")));
+	}
+
+	@After
+	public void cleanup() throws IOException {
+		server.close();
+		http.close();
+	}
+
+	@Test
+	public void createIssuesWhenConcurrentThenEachImportedOnce() throws Exception {
+		config.setImportThreads(4);
+		List<JiraIssue> issues = issues(12);
+
+		github.createIssues(issues.stream(), issues.size());
+
+		assertThat(server.getIssues().values()).extracting(Issue::getTitle)
+			.containsOnlyElementsOf(titles(issues))
+			.hasSize(issues.size());
+		for(JiraIssue issue : issues) {
+			assertThat(journal.isCompleted(issue.getKey(), Phase.IMPORTED)).isTrue();
+		}
+	}
+
+	@Test
+	public void createIssuesWhenConcurrentThenBackportedInJiraOrder() throws Exception {
+		config.setImportThreads(4);
+		List<JiraIssue> issues = issues(8);
+		for(JiraIssue issue : issues) {
+			issue.getFields().setFixVersions(Arrays.asList(new JiraFixVersion("1.0"), new JiraFixVersion("1.1")));
+		}
+
+		github.createIssues(issues.stream(), issues.size());
+
+		List<Issue> backports = server.getIssues().values().stream()
+				.filter(i -> i.getLabels().contains("Backport"))
+				.sorted(Comparator.comparingInt(Issue::getNumber))
+				.collect(Collectors.toList());
+		assertThat(backports).extracting(Issue::getTitle).containsExactlyElementsOf(titles(issues));
+		for(Issue backport : backports) {
+			String key = backport.getTitle().split(":")[0];
+			assertThat(backport.getBody()).isEqualTo("Backported #" + journal.get(key).getIssueNumber());
+		}
+	}
+
+	@Test
+	public void createIssuesWhenConvertedInParallelThenImportedInJiraOrder() throws Exception {
+		// more than the default on a single CPU, so the conversions overlap
+		config.setConversionThreads(Math.max(4, config.getConversionThreads()));
+		List<JiraIssue> issues = issues(8);
+		// the first issue takes much longer to convert than the ones after it
+		List<JiraComment> comments = issues.get(0).getFields().getComment().getComments();
+		for(int i = 0; i < 200; i++) {
+			String body = String.join("\n", Collections.nCopies(50, "Comment *" + i + "* with {{code}} and [a link|http://example.com]"));
+			comments.add(comment(body, CREATED.plusMinutes(i)));
+		}
+
+		github.createIssues(issues.stream(), issues.size());
+
+		assertThat(server.getIssues().values().stream()
+				.sorted(Comparator.comparingInt(Issue::getNumber))
+				.map(Issue::getTitle)
+				.collect(Collectors.toList())).isEqualTo(titles(issues));
+	}
+
+	@Test(expected = HttpClientErrorException.class)
+	public void createIssuesWhenImportRejectedThenFails() throws Exception {
+		config.setImportThreads(4);
+		server.setRejectedImportTitle("SEC-3:");
+		List<JiraIssue> issues = issues(6);
+
+		github.createIssues(issues.stream(), issues.size());
+	}
+
+	@Test
+	public void createIssuesWhenImportRejectedThenOnlyRejectedIssueNotJournaled() throws Exception {
+		server.setRejectedImportTitle("SEC-3:");
+		List<JiraIssue> issues = issues(6);
+
+		try {
+			github.createIssues(issues.stream(), issues.size());
+		} catch(HttpClientErrorException expected) {
+		}
+
+		assertThat(journal.isCompleted("SEC-2", Phase.IMPORTED)).isTrue();
+		assertThat(journal.isCompleted("SEC-3", Phase.IMPORTED)).isFalse();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void createIssuesWhenConversionFailsThenFails() throws Exception {
+		config.setImportThreads(4);
+		List<JiraIssue> issues = issues(6);
+		issues.get(2).getFields().setFixVersions(Collections.singletonList(new JiraFixVersion("9.9")));
+
+		github.createIssues(issues.stream(), issues.size());
+	}
+
+	@Test
+	public void createIssuesWhenMilestoneOnLaterPageThenFound() throws Exception {
+		List<JiraVersion> versions = IntStream.rangeClosed(0, GithubClient.PAGE_SIZE)
+				.mapToObj(i -> version("2." + i))
+				.collect(Collectors.toList());
+		github.createMilestones(versions);
+		List<JiraIssue> issues = issues(3);
+		for(JiraIssue issue : issues) {
+			issue.getFields().setFixVersions(Collections.singletonList(new JiraFixVersion("2." + GithubClient.PAGE_SIZE)));
+		}
+
+		github.createIssues(issues.stream(), issues.size());
+
+		assertThat(server.getMilestoneTitles()).hasSize(versions.size() + 2);
+		assertThat(server.getIssues().values()).extracting(Issue::getMilestone)
+			.containsOnly(server.getMilestoneNumber("2." + GithubClient.PAGE_SIZE));
+	}
+
+	@Test
+	public void deleteRepositoryThenCreateRepositoryThenEmpty() throws Exception {
+		config.setDeleteCreateRepositorySlug(true);
+		List<JiraIssue> issues = issues(2);
+		github.createIssues(issues.stream(), issues.size());
+
+		github.deleteRepository();
+		github.createRepository();
+
+		assertThat(server.getIssues()).isEmpty();
+		assertThat(server.getMilestoneTitles()).isEmpty();
+	}
+
+	@Test
+	public void deleteRepositoryWhenNotConfiguredThenKept() throws Exception {
+		List<JiraIssue> issues = issues(2);
+		github.createIssues(issues.stream(), issues.size());
+
+		github.deleteRepository();
+
+		assertThat(server.getIssues()).hasSize(issues.size());
+	}
+
+	@Test
+	public void createIssuesWhenResumedAfterBackportFailedThenEachBackportOnce() throws Exception {
+		github.createMilestones(Arrays.asList(version("1.2")));
+		List<JiraIssue> issues = issues(1);
+		for(JiraIssue issue : issues) {
+			issue.getFields().setFixVersions(Arrays.asList(new JiraFixVersion("1.0"), new JiraFixVersion("1.1"), new JiraFixVersion("1.2")));
+		}
+		// the latest version is the milestone of the issue, so 1.1 is backported before 1.0
+		server.setRejectedImportMilestone(server.getMilestoneNumber("1.0"));
+		try {
+			github.createIssues(issues.stream(), issues.size());
+		} catch(HttpClientErrorException expected) {
+		}
+		assertThat(journal.get("SEC-1").getBackports()).containsOnlyKeys("1.1");
+
+		server.setRejectedImportMilestone(null);
+		github.createIssues(issues.stream(), issues.size());
+
+		for(String version : Arrays.asList("1.0", "1.1", "1.2")) {
+			assertThat(server.getIssues().values()).filteredOn(i -> server.getMilestoneNumber(version).equals(i.getMilestone()))
+				.extracting(Issue::getTitle)
+				.containsOnlyElementsOf(titles(issues))
+				.hasSize(issues.size());
+		}
+		for(JiraIssue issue : issues) {
+			assertThat(journal.get(issue.getKey()).getBackports()).containsOnlyKeys("1.1", "1.0");
+		}
+	}
+
+	@Test
+	public void createIssuesWhenIssueNumberAwaitedTwiceThenJournaledOnce() throws Exception {
+		Path file = temp.getRoot().toPath().resolve("journal.tsv");
+		try (MigrationJournal fileJournal = new MigrationJournal(file)) {
+			github.setJournal(fileJournal);
+			server.setImportDelayMillis(300);
+			List<JiraIssue> issues = issues(3);
+			for(JiraIssue issue : issues) {
+				issue.getFields().setFixVersions(Arrays.asList(new JiraFixVersion("1.0"), new JiraFixVersion("1.1")));
+			}
+
+			github.createIssues(issues.stream(), issues.size());
+		}
+
+		// the issue number is only set by resolved, every later line copies it
+		List<String> resolved = Files.readAllLines(file, StandardCharsets.UTF_8).stream()
+				.filter(line -> line.matches("SEC-\\d+\tIMPORTED\t[^\t]*\t\\d+\t.*"))
+				.collect(Collectors.toList());
+		assertThat(resolved).hasSize(3);
+	}
+
+	@Test
+	public void createIssuesWhenPredictionsCorrectThenVerifiedWithoutCorrections() throws Exception {
+		predictInOrder();
+		List<JiraIssue> issues = predictedIssues();
+
+		github.createIssues(issues.stream(), issues.size());
+
+		for(JiraIssue issue : issues) {
+			MigrationJournal.Entry entry = journal.get(issue.getKey());
+			assertThat(entry.getPredictedIssueNumber()).isEqualTo(entry.getIssueNumber());
+			assertThat(entry.getPhase()).isEqualTo(Phase.VERIFIED);
+		}
+		assertThat(server.getIssues().values().stream()
+				.flatMap(i -> i.getComments().stream())
+				.filter(comment -> comment.contains("should be"))
+				.collect(Collectors.toList())).isEmpty();
+	}
+
+	@Test
+	public void createIssuesWhenRepositoryHasIssuesThenNotPredicted() throws Exception {
+		List<JiraIssue> issues = issues(3);
+		github.createIssues(issues.subList(0, 1).stream(), 1);
+		// a new migration into the same repository
+		journal = new MigrationJournal();
+		github.setJournal(journal);
+		predictInOrder();
+
+		github.createIssues(issues.subList(1, 3).stream(), 2);
+
+		for(JiraIssue issue : issues.subList(1, 3)) {
+			assertThat(journal.get(issue.getKey()).getPredictedIssueNumber()).isNull();
+		}
+		assertThat(server.getIssues()).hasSize(3);
+	}
+
+	@Test
+	public void createIssuesWhenPredictionsWrongThenCorrected() throws Exception {
+		predictInOrder();
+		server.setForeignIssueEvery(2);
+		List<JiraIssue> issues = predictedIssues();
+
+		github.createIssues(issues.stream(), issues.size());
+
+		assertThat(journal.get("SEC-2").getPredictedIssueNumber()).isNotEqualTo(journal.get("SEC-2").getIssueNumber());
+		assertCorrected(issues);
+	}
+
+	@Test
+	public void createIssuesWhenResumedThenPredictionsOfPreviousMigrationCorrected() throws Exception {
+		predictInOrder();
+		server.setForeignIssueEvery(2);
+		server.setRejectedImportTitle("SEC-3:");
+		List<JiraIssue> issues = predictedIssues();
+		try {
+			github.createIssues(issues.stream(), issues.size());
+		} catch(HttpClientErrorException expected) {
+		}
+		assertThat(journal.get("SEC-2").getPredictedIssueNumber()).isNotNull();
+		assertThat(journal.isCompleted("SEC-2", Phase.VERIFIED)).isFalse();
+
+		server.setRejectedImportTitle(null);
+		github.createIssues(issues.stream(), issues.size());
+
+		assertThat(journal.get("SEC-3").getPredictedIssueNumber()).isNull();
+		assertCorrected(issues);
+	}
+
+	@Test
+	public void syncIssuesWhenCommentedThenOnlyNewCommentsPostedOnce() throws Exception {
+		JiraIssue issue = issue(1);
+		issue.getFields().getComment().getComments().add(comment("Imported comment", CREATED.plusHours(1)));
+		github.createIssues(Collections.singletonList(issue).stream(), 1);
+		Issue imported = server.getIssues().values().iterator().next();
+		List<String> importedComments = new ArrayList<>(imported.getComments());
+
+		// the watermark of the previous sync is older than the imported comment
+		DateTime since = CREATED;
+		issue.getFields().getComment().getComments().add(comment("Added comment", CREATED.plusDays(3)));
+		issue.getFields().setUpdated(CREATED.plusDays(3));
+		github.syncIssues(Collections.singletonList(issue).stream(), 1, since);
+		github.syncIssues(Collections.singletonList(issue).stream(), 1, since);
+
+		assertThat(imported.getComments()).hasSize(importedComments.size() + 1);
+		assertThat(imported.getComments().subList(0, importedComments.size())).isEqualTo(importedComments);
+		assertThat(imported.getComments().get(importedComments.size())).contains("Added comment");
+	}
+
+	@Test
+	public void syncIssuesWhenLabeledOnGithubThenOnlyMigratedLabelsChanged() throws Exception {
+		JiraIssue issue = issue(1);
+		github.createIssues(Collections.singletonList(issue).stream(), 1);
+		Issue imported = server.getIssues().values().iterator().next();
+		List<String> labels = new ArrayList<>(imported.getLabels());
+		labels.add("help wanted");
+		imported.setLabels(labels);
+
+		JiraStatus resolved = new JiraStatus();
+		resolved.setName("Resolved");
+		JiraResolution fixed = new JiraResolution();
+		fixed.setName("Fixed");
+		issue.getFields().setStatus(resolved);
+		issue.getFields().setResolution(fixed);
+		github.syncIssues(Collections.singletonList(issue).stream(), 1, CREATED);
+		github.syncIssues(Collections.singletonList(issue).stream(), 1, CREATED);
+
+		assertThat(imported.getLabels()).containsOnly("Resolved", "Bug", "Fixed", "Jira", "help wanted");
+		assertThat(imported.isClosed()).isTrue();
+		assertThat(journal.get("SEC-1").getLabels()).containsExactly("Resolved", "Bug", "Fixed", "Jira");
+	}
+
+	@Test
+	public void createIssuesWhenCompressedThenImported() throws Exception {
+		config.setCompressRequests(true);
+		List<JiraIssue> issues = issues(2);
+		issues.get(1).getFields().setFixVersions(Arrays.asList(new JiraFixVersion("1.0"), new JiraFixVersion("1.1")));
+
+		github.createIssues(issues.stream(), issues.size());
+
+		assertThat(server.getIssues().values()).extracting(Issue::getTitle)
+			.containsOnly("SEC-1: Issue 1", "SEC-2: Issue 2")
+			.hasSize(3);
+		assertThat(server.getIssues().values()).extracting(Issue::getBody)
+			.contains("Backported #" + journal.get("SEC-2").getIssueNumber());
+	}
+
+	@Test
+	public void createMilestonesWhenRunAgainThenNoneCreated() throws Exception {
+		int requests = server.getRequestCount();
+
+		github.createMilestones(Arrays.asList(version("1.0"), version("1.1"), version("1.0")));
+
+		assertThat(server.getMilestoneTitles()).containsOnly("1.0", "1.1");
+		// only the listing
+		assertThat(server.getRequestCount() - requests).isEqualTo(1);
+	}
+
+	@Test
+	public void createMilestonesWhenCreatedSinceListedThenAlreadyExistsIgnored() throws Exception {
+		server.setListsEmpty(true);
+
+		github.createMilestones(Arrays.asList(version("1.0"), version("1.1"), version("1.2")));
+
+		assertThat(server.getMilestoneTitles()).containsOnly("1.0", "1.1", "1.2");
+	}
+
+	@Test
+	public void createLabelsWhenRunAgainThenEachOnceIgnoringCase() throws Exception {
+		github.createIssueTypeLabels(Arrays.asList(issueType("Bug"), issueType("Task")));
+		int requests = server.getRequestCount();
+
+		github.createIssueTypeLabels(Arrays.asList(issueType("bug"), issueType("Task"), issueType("Task")));
+
+		assertThat(server.getLabelNames()).containsOnly("Bug", "Task");
+		assertThat(server.getRequestCount() - requests).isEqualTo(1);
+	}
+
+	@Test
+	public void createLabelsWhenCreatedSinceListedThenAlreadyExistsIgnored() throws Exception {
+		github.createIssueTypeLabels(Arrays.asList(issueType("Bug"), issueType("Task")));
+		server.setListsEmpty(true);
+
+		github.createIssueTypeLabels(Arrays.asList(issueType("BUG"), issueType("Task")));
+
+		assertThat(server.getLabelNames()).containsOnly("Bug", "Task");
+	}
+
+	/**
+	 * Predicts the issue numbers and imports the issues one at a time in the
+	 * order of the JIRA issues.
+	 */
+	private void predictInOrder() {
+		config.setPredictIssueNumbers(true);
+		config.setImportThreads(1);
+	}
+
+	/**
+	 * Issues with backports and links to issues before and after them.
+	 */
+	private static List<JiraIssue> predictedIssues() {
+		List<JiraIssue> issues = issues(4);
+		issues.get(1).getFields().setFixVersions(Arrays.asList(new JiraFixVersion("1.0"), new JiraFixVersion("1.1")));
+		link(issues.get(1), "SEC-1");
+		link(issues.get(2), "SEC-2");
+		link(issues.get(3), "SEC-2");
+		link(issues.get(0), "SEC-4");
+		return issues;
+	}
+
+	/**
+	 * Asserts that every predicted issue is verified and that every reference to
+	 * a wrong issue number has a correction.
+	 */
+	private void assertCorrected(List<JiraIssue> issues) {
+		int corrections = 0;
+		for(JiraIssue issue : issues) {
+			String key = issue.getKey();
+			MigrationJournal.Entry entry = journal.get(key);
+			int actual = entry.getIssueNumber();
+			if(entry.getPredictedIssueNumber() != null) {
+				assertThat(entry.getPhase()).isEqualTo(Phase.VERIFIED);
+			}
+			for(Map.Entry<String, Integer> linked : entry.getLinkedIssueNumbers().entrySet()) {
+				int linkedActual = journal.get(linked.getKey()).getIssueNumber();
+				if(linked.getValue() != linkedActual) {
+					assertThat(server.getIssues().get(actual).getComments())
+						.contains(correction(linked.getKey(), linked.getValue(), linkedActual));
+					corrections++;
+				}
+			}
+			for(MigrationJournal.Backport backport : entry.getBackports().values()) {
+				Issue backportIssue = server.getIssues().values().stream()
+						.filter(i -> ("Backported #" + backport.getReferencedIssueNumber()).equals(i.getBody()))
+						.findFirst()
+						.get();
+				if(backport.getReferencedIssueNumber() != actual) {
+					assertThat(backportIssue.getComments())
+						.containsExactly(correction(key, backport.getReferencedIssueNumber(), actual));
+					corrections++;
+				} else {
+					assertThat(backportIssue.getComments()).isEmpty();
+				}
+			}
+		}
+		assertThat(corrections).isGreaterThan(0);
+	}
+
+	private static String correction(String key, int predicted, int actual) {
+		return "The issue numbers above were assigned before the issues were migrated and some are wrong:\n\n"
+				+ "* #" + predicted + " should be #" + actual + " (" + key + ")";
+	}
+
+	static void link(JiraIssue issue, String key) {
+		IssueLink.RelatedIssue outward = new IssueLink.RelatedIssue();
+		outward.setKey(key);
+		IssueLink.RelatedType type = new IssueLink.RelatedType();
+		type.setName("Relate");
+		type.setOutward("relates to");
+		type.setInward("is related to");
+		IssueLink link = new IssueLink();
+		link.setOutwardIssue(outward);
+		link.setType(type);
+		issue.getFields().getIssuelinks().add(link);
+	}
+
+	static List<JiraIssue> issues(int count) {
+		return IntStream.rangeClosed(1, count).mapToObj(GithubClientMigrationTests::issue).collect(Collectors.toList());
+	}
+
+	static JiraIssue issue(int number) {
+		JiraUser reporter = new JiraUser();
+		reporter.setDisplayName("Rob Winch");
+		reporter.setKey("rwinch");
+		reporter.setSelf(JIRA_BASE_URL + "/rest/api/2/user?username=rwinch");
+
+		JiraStatus status = new JiraStatus();
+		status.setName("Open");
+		JiraIssueType type = new JiraIssueType();
+		type.setName("Bug");
+		JiraCommentPage comments = new JiraCommentPage();
+		comments.setComments(new ArrayList<>());
+
+		JiraIssue.Fields fields = new JiraIssue.Fields();
+		fields.setSummary("Issue " + number);
+		fields.setDescription("Description of {{" + number + "}}");
+		fields.setCreated(CREATED.plusDays(number));
+		fields.setUpdated(CREATED.plusDays(number + 1));
+		fields.setReporter(reporter);
+		fields.setComment(comments);
+		fields.setComponents(new ArrayList<>());
+		fields.setFixVersions(Collections.singletonList(new JiraFixVersion("1.0")));
+		fields.setStatus(status);
+		fields.setIssuetype(type);
+		fields.setIssuelinks(new ArrayList<>());
+
+		JiraIssue issue = new JiraIssue();
+		issue.setKey("SEC-" + number);
+		issue.setSelf(JIRA_BASE_URL + "/rest/api/2/issue/" + (10000 + number));
+		issue.setFields(fields);
+		return issue;
+	}
+
+	static JiraComment comment(String body, DateTime created) {
+		JiraUser author = new JiraUser();
+		author.setDisplayName("Rob Winch");
+		author.setKey("rwinch");
+		author.setSelf(JIRA_BASE_URL + "/rest/api/2/user?username=rwinch");
+		JiraComment comment = new JiraComment();
+		comment.setAuthor(author);
+		comment.setBody(body);
+		comment.setCreated(created);
+		return comment;
+	}
+
+	static List<String> titles(List<JiraIssue> issues) {
+		return issues.stream().map(i -> i.getKey() + ": " + i.getFields().getSummary()).collect(Collectors.toList());
+	}
+
+	static JiraIssueType issueType(String name) {
+		JiraIssueType type = new JiraIssueType();
+		type.setName(name);
+		return type;
+	}
+
+	static JiraVersion version(String name) {
+		JiraVersion version = new JiraVersion();
+		version.setName(name);
+		version.setReleased(true);
+		return version;
+	}
+}
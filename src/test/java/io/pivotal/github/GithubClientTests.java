@@ -0,0 +1,222 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pivotal.github;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.pivotal.jira.IssueLink;
+import io.pivotal.jira.JiraComment;
+import io.pivotal.jira.JiraCommentPage;
+import io.pivotal.jira.JiraFixVersion;
+import io.pivotal.jira.JiraIssue;
+import io.pivotal.jira.JiraIssueType;
+import io.pivotal.jira.JiraStatus;
+import io.pivotal.jira.JiraUser;
+import io.pivotal.util.MarkdownEngine;
+import io.pivotal.util.MarkupManager;
+import io.pivotal.util.TextileEngine;
+
+/**
+ * @author Rob Winch
+ *
+ */
+public class GithubClientTests {
+	static final String JIRA_BASE_URL = "https://jira.spring.io";
+
+	ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+
+	GithubConfig config;
+
+	GithubClient github;
+
+	Map<String, GithubMilestone> nameToMilestone;
+
+	JiraIssue issue;
+
+	@Before
+	public void setup() throws IOException {
+		MarkdownEngine markdown = new MarkdownEngine();
+		markdown.setJiraBaseUrl(JIRA_BASE_URL);
+		TextileEngine textile = new TextileEngine();
+		textile.setJiraBaseUrl(JIRA_BASE_URL);
+
+		config = new GithubConfig();
+		github = new GithubClient();
+		github.setConfig(config);
+		github.setMarkup(new MarkupManager(markdown, textile));
+		github.setJiraUsernameToGithubUsername(Collections.singletonMap("rwinch", "rwinch"));
+
+		GithubMilestone milestone = new GithubMilestone();
+		milestone.setNumber(1);
+		milestone.setTitle("4.0.1");
+		nameToMilestone = Collections.singletonMap(milestone.getTitle(), milestone);
+
+		issue = createIssue();
+		github.importedIssues = new ImportedIssueStore();
+	}
+
+	@After
+	public void cleanup() throws IOException {
+		github.importedIssues.close();
+	}
+
+	@Test
+	public void prepareIssueThenBodyIsImportOfConvertedIssue() throws IOException {
+		GithubClient.PreparedIssue prepared = github.prepareIssue(nameToMilestone, issue);
+
+		JsonNode written = mapper.readTree(prepared.getBody());
+		assertThat(written.get("issue")).isEqualTo(mapper.valueToTree(github.createGithubIssue(nameToMilestone, issue, new JiraFixVersion("4.0.1"))));
+		assertThat(written.get("comments")).isEqualTo(mapper.valueToTree(github.createComments(issue)));
+		assertThat(written.get("comments")).hasSize(2);
+		// only the written body keeps the converted description
+		assertThat(prepared.getGhIssue().getBody()).isNull();
+	}
+
+	@Test
+	public void prepareIssueWhenCompressRequestsThenGzipped() throws IOException {
+		config.setCompressRequests(true);
+
+		GithubClient.PreparedIssue prepared = github.prepareIssue(nameToMilestone, issue);
+
+		JsonNode written = mapper.readTree(new GZIPInputStream(new ByteArrayInputStream(prepared.getBody())));
+		assertThat(written.get("issue")).isEqualTo(mapper.valueToTree(github.createGithubIssue(nameToMilestone, issue, new JiraFixVersion("4.0.1"))));
+		assertThat(written.get("comments")).isEqualTo(mapper.valueToTree(github.createComments(issue)));
+	}
+
+	@Test
+	public void prepareIssueWhenLinkedIssueNumberKnownThenLinkCommentWrittenLast() throws IOException {
+		issue.getFields().setIssuelinks(Collections.singletonList(link("SEC-1")));
+		github.importedIssues.setIssueNumber("SEC-1", 7);
+
+		GithubClient.PreparedIssue prepared = github.prepareIssue(nameToMilestone, issue);
+
+		JsonNode comments = mapper.readTree(prepared.getBody()).get("comments");
+		assertThat(comments).hasSize(3);
+		assertThat(comments.get(2).get("body").asText()).isEqualTo("\n\nThis issue relates to #7");
+		assertThat(prepared.getLinkedIssueNumbers()).isEqualTo(Collections.singletonMap("SEC-1", 7));
+	}
+
+	@Test
+	public void prepareIssueWhenLinkedIssueNumberUnknownThenLinkedLater() throws IOException {
+		issue.getFields().setIssuelinks(Collections.singletonList(link("SEC-1")));
+
+		GithubClient.PreparedIssue prepared = github.prepareIssue(nameToMilestone, issue);
+
+		assertThat(mapper.readTree(prepared.getBody()).get("comments")).hasSize(2);
+		assertThat(prepared.getLinkedIssueNumbers()).isNull();
+	}
+
+	@Test
+	public void createCommentsWhenManyThenInOrder() {
+		List<JiraComment> comments = new ArrayList<>();
+		for(int i = 0; i < 100; i++) {
+			JiraComment comment = new JiraComment();
+			comment.setAuthor(issue.getFields().getReporter());
+			comment.setCreated(issue.getFields().getCreated().plusMinutes(i));
+			comment.setBody("Comment {{" + i + "}}");
+			comments.add(comment);
+		}
+		issue.getFields().getComment().setComments(comments);
+
+		List<GithubComment> converted = github.createComments(issue);
+
+		assertThat(converted).hasSize(100);
+		for(int i = 0; i < 100; i++) {
+			assertThat(converted.get(i).getBody()).endsWith("Comment `" + i + "`");
+		}
+	}
+
+	private JiraIssue createIssue() {
+		DateTime created = DateTime.parse("2015-06-02T10:15:30Z");
+		JiraUser reporter = user("Joe Grandja", "jgrandja");
+		JiraUser assignee = user("Rob Winch", "rwinch");
+
+		List<JiraComment> comments = new ArrayList<>();
+		for(String body : Arrays.asList("Thanks for the report. Can you provide {{web.xml}}?", "{code}<http/>{code}")) {
+			JiraComment comment = new JiraComment();
+			comment.setAuthor(comments.isEmpty() ? assignee : reporter);
+			comment.setCreated(created.plusHours(comments.size() + 1));
+			comment.setBody(body);
+			comments.add(comment);
+		}
+		JiraCommentPage commentPage = new JiraCommentPage();
+		commentPage.setComments(comments);
+
+		JiraStatus status = new JiraStatus();
+		status.setName("Closed");
+		JiraIssueType type = new JiraIssueType();
+		type.setName("Bug");
+
+		JiraIssue.Fields fields = new JiraIssue.Fields();
+		fields.setSummary("Cannot create a session after the response has been committed");
+		fields.setDescription("The [docs|http://docs.spring.io/] do not mention this");
+		fields.setCreated(created);
+		fields.setUpdated(created.plusDays(3));
+		fields.setReporter(reporter);
+		fields.setAssignee(assignee);
+		fields.setComment(commentPage);
+		fields.setComponents(Collections.emptyList());
+		fields.setFixVersions(Arrays.asList(new JiraFixVersion("4.0.1")));
+		fields.setStatus(status);
+		fields.setIssuetype(type);
+		fields.setIssuelinks(Collections.emptyList());
+
+		JiraIssue issue = new JiraIssue();
+		issue.setKey("SEC-2917");
+		issue.setSelf(JIRA_BASE_URL + "/rest/api/2/issue/53210");
+		issue.setFields(fields);
+		return issue;
+	}
+
+	private static IssueLink link(String key) {
+		IssueLink.RelatedIssue outward = new IssueLink.RelatedIssue();
+		outward.setKey(key);
+		IssueLink.RelatedType type = new IssueLink.RelatedType();
+		type.setName("Relate");
+		type.setOutward("relates to");
+		type.setInward("is related to");
+		IssueLink link = new IssueLink();
+		link.setOutwardIssue(outward);
+		link.setType(type);
+		return link;
+	}
+
+	private static JiraUser user(String displayName, String key) {
+		JiraUser user = new JiraUser();
+		user.setDisplayName(displayName);
+		user.setKey(key);
+		user.setSelf(JIRA_BASE_URL + "/rest/api/2/user?username=" + key);
+		return user;
+	}
+}
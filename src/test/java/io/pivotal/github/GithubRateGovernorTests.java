@@ -0,0 +1,175 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pivotal.github;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+
+/**
+ * @author Rob Winch
+ *
+ */
+public class GithubRateGovernorTests {
+	static final String ABUSE = "{\"message\":\"You have triggered an abuse detection mechanism.\",\"documentation_url\":\"https://developer.github.com/v3/#abuse-rate-limits\"}";
+
+	long now = TimeUnit.HOURS.toMillis(1);
+
+	GithubRateGovernor governor;
+
+	@Before
+	public void setup() {
+		governor = new GithubRateGovernor(() -> now);
+	}
+
+	@Test
+	public void pacesToRequestsPerSecond() {
+		governor.setRequestsPerSecond(10);
+
+		assertThat(governor.reserve(false)).isEqualTo(0);
+		assertThat(governor.reserve(false)).isEqualTo(100);
+		assertThat(governor.reserve(false)).isEqualTo(200);
+		now += 1000;
+		assertThat(governor.reserve(false)).isEqualTo(0);
+	}
+
+	@Test
+	public void pacesWritesToWritesPerSecond() {
+		governor.setRequestsPerSecond(10);
+		governor.setWritesPerSecond(1);
+
+		assertThat(governor.reserve(true)).isEqualTo(0);
+		// reads only wait for the pacing of all requests
+		assertThat(governor.reserve(false)).isEqualTo(100);
+		assertThat(governor.reserve(true)).isEqualTo(1000);
+		assertThat(governor.reserve(false)).isEqualTo(1100);
+	}
+
+	@Test
+	public void unlimitedWithoutBudget() {
+		assertThat(governor.reserve(false)).isEqualTo(0);
+		assertThat(governor.reserve(false)).isEqualTo(0);
+	}
+
+	@Test
+	public void waitsForResetOnceReserveIsReached() {
+		long reset = now + 30000;
+		governor.update(rateLimit(GithubRateGovernor.RATE_LIMIT_RESERVE + 2, reset));
+
+		assertThat(governor.reserve(false)).isEqualTo(0);
+		assertThat(governor.reserve(false)).isEqualTo(0);
+		assertThat(governor.reserve(false)).isEqualTo(30000);
+		assertThat(governor.getBudget().getRemaining()).isEqualTo(-1);
+	}
+
+	@Test
+	public void outOfOrderResponsesDoNotRaiseRemaining() {
+		long reset = now + 30000;
+		governor.update(rateLimit(100, reset));
+		governor.update(rateLimit(200, reset));
+
+		assertThat(governor.getBudget().getRemaining()).isEqualTo(100);
+
+		governor.update(rateLimit(5000, reset + 3600000));
+
+		assertThat(governor.getBudget().getRemaining()).isEqualTo(5000);
+	}
+
+	@Test
+	public void honorsRetryAfter() {
+		HttpHeaders headers = new HttpHeaders();
+		headers.set("Retry-After", "30");
+
+		assertThat(governor.rejected(HttpStatus.FORBIDDEN, headers, ABUSE)).isTrue();
+		assertThat(governor.reserve(false)).isEqualTo(30000);
+		assertThat(governor.getBudget().getRejected()).isEqualTo(1);
+	}
+
+	@Test
+	public void honorsRetryAfterHttpDate() {
+		HttpHeaders headers = new HttpHeaders();
+		headers.set("Retry-After", DateTimeFormatter.RFC_1123_DATE_TIME.format(Instant.ofEpochMilli(now + 30000).atZone(ZoneOffset.UTC)));
+
+		assertThat(governor.rejected(HttpStatus.TOO_MANY_REQUESTS, headers, ABUSE)).isTrue();
+		assertThat(governor.reserve(false)).isEqualTo(30000);
+	}
+
+	@Test
+	public void invalidRetryAfterBacksOff() {
+		HttpHeaders headers = new HttpHeaders();
+		headers.set("Retry-After", "soon");
+
+		assertThat(governor.rejected(HttpStatus.FORBIDDEN, headers, "{\"message\":\"Slow down\"}")).isTrue();
+		assertThat(governor.reserve(false)).isEqualTo(GithubRateGovernor.INITIAL_ABUSE_BACKOFF_MILLIS);
+	}
+
+	@Test
+	public void invalidResetIgnoredUnlessRejected() {
+		HttpHeaders headers = new HttpHeaders();
+		headers.set("X-RateLimit-Remaining", "0");
+		headers.set("X-RateLimit-Reset", "tomorrow");
+
+		governor.update(headers);
+		assertThat(governor.getBudget().getRemaining()).isEqualTo(-1);
+
+		assertThat(governor.rejected(HttpStatus.FORBIDDEN, headers, "{\"message\":\"API rate limit exceeded\"}")).isTrue();
+		assertThat(governor.reserve(false)).isEqualTo(GithubRateGovernor.INITIAL_ABUSE_BACKOFF_MILLIS);
+	}
+
+	@Test
+	public void rateLimitExceededWaitsForReset() {
+		long reset = now + 60000;
+
+		assertThat(governor.rejected(HttpStatus.FORBIDDEN, rateLimit(0, reset), "{\"message\":\"API rate limit exceeded\"}")).isTrue();
+		assertThat(governor.reserve(false)).isEqualTo(60000);
+	}
+
+	@Test
+	public void abuseBackoffIsCappedAndResetOnSuccess() {
+		long backoff = GithubRateGovernor.INITIAL_ABUSE_BACKOFF_MILLIS;
+		for(int i = 0; i < 10; i++) {
+			assertThat(governor.rejected(HttpStatus.FORBIDDEN, new HttpHeaders(), ABUSE)).isTrue();
+			assertThat(governor.reserve(false)).isEqualTo(backoff);
+			now += backoff;
+			backoff = Math.min(backoff * 2, GithubRateGovernor.MAX_ABUSE_BACKOFF_MILLIS);
+		}
+		governor.succeeded();
+
+		governor.rejected(HttpStatus.FORBIDDEN, new HttpHeaders(), ABUSE);
+		assertThat(governor.reserve(false)).isEqualTo(GithubRateGovernor.INITIAL_ABUSE_BACKOFF_MILLIS);
+	}
+
+	@Test
+	public void otherErrorsAreNotRetried() {
+		assertThat(governor.rejected(HttpStatus.FORBIDDEN, new HttpHeaders(), "{\"message\":\"Must have admin rights to Repository.\"}")).isFalse();
+		assertThat(governor.rejected(HttpStatus.NOT_FOUND, new HttpHeaders(), ABUSE)).isFalse();
+	}
+
+	private static HttpHeaders rateLimit(int remaining, long resetMillis) {
+		HttpHeaders headers = new HttpHeaders();
+		headers.set("X-RateLimit-Remaining", String.valueOf(remaining));
+		headers.set("X-RateLimit-Reset", String.valueOf(TimeUnit.MILLISECONDS.toSeconds(resetMillis)));
+		return headers;
+	}
+}
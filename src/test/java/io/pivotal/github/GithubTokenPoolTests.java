@@ -0,0 +1,92 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pivotal.github;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+
+/**
+ * @author Rob Winch
+ *
+ */
+public class GithubTokenPoolTests {
+	long now = TimeUnit.HOURS.toMillis(1);
+
+	GithubTokenPool pool;
+
+	@Before
+	public void setup() {
+		pool = new GithubTokenPool(Arrays.asList("a", "b", "c"), 0, 0, () -> now);
+	}
+
+	@Test
+	public void primaryIsFirstToken() {
+		assertThat(pool.primary().getAccessToken()).isEqualTo("a");
+		assertThat(pool.get("b").getAccessToken()).isEqualTo("b");
+		assertThat(pool.get("missing")).isNull();
+	}
+
+	@Test
+	public void selectsUnknownTokensFirst() {
+		update("a", 4000, now + 60000);
+
+		assertThat(pool.select().getAccessToken()).isEqualTo("b");
+	}
+
+	@Test
+	public void selectsMostRemaining() {
+		update("a", 4000, now + 60000);
+		update("b", 4500, now + 60000);
+		update("c", 100, now + 60000);
+
+		assertThat(pool.select().getAccessToken()).isEqualTo("b");
+	}
+
+	@Test
+	public void skipsPausedAndUsedUpTokens() {
+		update("a", 4000, now + 60000);
+		update("b", GithubRateGovernor.RATE_LIMIT_RESERVE, now + 60000);
+		update("c", 4500, now + 60000);
+		HttpHeaders retryAfter = new HttpHeaders();
+		retryAfter.set("Retry-After", "30");
+		pool.get("c").getRateGovernor().rejected(HttpStatus.FORBIDDEN, retryAfter, "");
+
+		assertThat(pool.select().getAccessToken()).isEqualTo("a");
+	}
+
+	@Test
+	public void selectsSoonestAvailableWhenAllAreUsedUp() {
+		update("a", 0, now + 60000);
+		update("b", 0, now + 30000);
+		update("c", 0, now + 90000);
+
+		assertThat(pool.select().getAccessToken()).isEqualTo("b");
+	}
+
+	private void update(String accessToken, int remaining, long resetMillis) {
+		HttpHeaders headers = new HttpHeaders();
+		headers.set("X-RateLimit-Remaining", String.valueOf(remaining));
+		headers.set("X-RateLimit-Reset", String.valueOf(TimeUnit.MILLISECONDS.toSeconds(resetMillis)));
+		pool.get(accessToken).getRateGovernor().update(headers);
+	}
+}
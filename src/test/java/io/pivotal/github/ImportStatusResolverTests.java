@@ -0,0 +1,139 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pivotal.github;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import io.pivotal.github.GithubClient.ImportStatusResponse;
+
+/**
+ * @author Rob Winch
+ *
+ */
+public class ImportStatusResolverTests {
+	static final String IMPORT_URL = "https://api.github.com/repos/rwinch/test/import/issues/1";
+
+	ImportStatusResolver resolver;
+
+	AtomicInteger lookups = new AtomicInteger();
+
+	@After
+	public void cleanup() {
+		resolver.close();
+	}
+
+	@Test
+	public void resolveWhenPendingThenPolledUntilImported() throws Exception {
+		resolver = resolver(Arrays.asList(status("pending", null), status("pending", null), status("imported", "https://api.github.com/repos/rwinch/test/issues/42")));
+
+		assertThat(resolver.resolve(IMPORT_URL).get(5, TimeUnit.SECONDS)).isEqualTo(42);
+		assertThat(lookups.get()).isEqualTo(3);
+		assertThat(resolver.getOutstanding()).isEqualTo(0);
+	}
+
+	@Test
+	public void resolveWhenImportFailedThenFails() throws Exception {
+		resolver = resolver(Arrays.asList(status("failed", null)));
+
+		assertThat(failure(resolver.resolve(IMPORT_URL))).isInstanceOf(IllegalStateException.class);
+	}
+
+	@Test
+	public void resolveWhenTransientErrorsThenRetried() throws Exception {
+		resolver = resolver(Arrays.asList(new HttpServerErrorException(HttpStatus.BAD_GATEWAY),
+				new ResourceAccessException("Connection reset"),
+				status("pending", null),
+				new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE),
+				status("imported", "https://api.github.com/repos/rwinch/test/issues/7")));
+
+		assertThat(resolver.resolve(IMPORT_URL).get(5, TimeUnit.SECONDS)).isEqualTo(7);
+	}
+
+	@Test
+	public void resolveWhenTransientErrorsExceedMaxThenFails() throws Exception {
+		HttpServerErrorException error = new HttpServerErrorException(HttpStatus.BAD_GATEWAY);
+		resolver = resolver(Arrays.asList(error, error, error, error, error, status("imported", "https://api.github.com/repos/rwinch/test/issues/7")));
+
+		assertThat(failure(resolver.resolve(IMPORT_URL))).isSameAs(error);
+		assertThat(lookups.get()).isEqualTo(ImportStatusResolver.MAX_FAILURES);
+	}
+
+	@Test
+	public void resolveWhenClientErrorThenFailsImmediately() throws Exception {
+		resolver = resolver(Arrays.asList(new HttpClientErrorException(HttpStatus.NOT_FOUND), status("imported", "https://api.github.com/repos/rwinch/test/issues/7")));
+
+		assertThat(failure(resolver.resolve(IMPORT_URL))).isInstanceOf(HttpClientErrorException.class);
+		assertThat(lookups.get()).isEqualTo(1);
+	}
+
+	@Test
+	public void resolveWhenOutstandingThenSameFuture() throws Exception {
+		resolver = resolver(Arrays.asList(status("pending", null), status("imported", "https://api.github.com/repos/rwinch/test/issues/42")));
+
+		CompletableFuture<Integer> issueNumber = resolver.resolve(IMPORT_URL);
+
+		assertThat(resolver.resolve(IMPORT_URL)).isSameAs(issueNumber);
+		assertThat(issueNumber.get(5, TimeUnit.SECONDS)).isEqualTo(42);
+	}
+
+	/**
+	 * A resolver whose lookups return (or throw) the given results in order.
+	 */
+	private ImportStatusResolver resolver(List<?> results) {
+		Iterator<?> next = results.iterator();
+		Function<String, ImportStatusResponse> lookup = importUrl -> {
+			lookups.incrementAndGet();
+			Object result = next.next();
+			if(result instanceof RuntimeException) {
+				throw (RuntimeException) result;
+			}
+			return (ImportStatusResponse) result;
+		};
+		return new ImportStatusResolver(lookup, 1, 1, 10);
+	}
+
+	private static ImportStatusResponse status(String status, String issueUrl) {
+		ImportStatusResponse response = new ImportStatusResponse();
+		response.setStatus(status);
+		response.setIssueUrl(issueUrl);
+		return response;
+	}
+
+	private static Throwable failure(CompletableFuture<Integer> issueNumber) throws Exception {
+		try {
+			issueNumber.get(5, TimeUnit.SECONDS);
+		} catch(ExecutionException e) {
+			return e.getCause();
+		}
+		throw new AssertionError("Expected the import to fail");
+	}
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pivotal.github;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.pivotal.github.GithubClient.ImportedIssue;
+import io.pivotal.github.GithubClient.OutwardLink;
+
+/**
+ * @author Rob Winch
+ *
+ */
+public class ImportedIssueStoreTests {
+	ImportedIssueStore store;
+
+	@Before
+	public void setup() throws IOException {
+		store = new ImportedIssueStore();
+	}
+
+	@After
+	public void cleanup() throws IOException {
+		store.close();
+	}
+
+	@Test
+	public void getWhenPutThenSame() {
+		GithubIssue backport = new GithubIssue();
+		backport.setTitle("SEC-1: Title");
+		backport.getLabels().add("Backport");
+		ImportedIssue issue = importedIssue("SEC-1");
+		issue.setOutwardLinks(Collections.singletonList(new OutwardLink("SEC-2", "relates to")));
+		issue.setBackportVersions(Arrays.asList("3.2.9", "4.0.4"));
+		issue.setBackport(backport);
+		store.put(issue);
+
+		assertThat(store.get("SEC-1")).isEqualTo(issue);
+		assertThat(store.contains("SEC-1")).isTrue();
+		assertThat(store.get("SEC-2")).isNull();
+		assertThat(store.contains("SEC-2")).isFalse();
+	}
+
+	@Test
+	public void getWhenPutAgainThenLatestInOriginalOrder() {
+		ImportedIssue first = importedIssue("SEC-1");
+		store.put(first);
+		store.put(importedIssue("SEC-2"));
+		first.setBackportVersions(Collections.singletonList("3.2.9"));
+		store.put(first);
+
+		assertThat(store.getKeys()).containsExactly("SEC-1", "SEC-2");
+		assertThat(store.get("SEC-1").getBackportVersions()).containsExactly("3.2.9");
+		assertThat(store.get("SEC-2")).isEqualTo(importedIssue("SEC-2"));
+	}
+
+	@Test
+	public void getIssueNumberWhenSetThenFound() {
+		assertThat(store.getIssueNumber("SEC-1")).isNull();
+
+		store.setIssueNumber("SEC-1", 1);
+
+		assertThat(store.getIssueNumber("SEC-1")).isEqualTo(1);
+	}
+
+	private static ImportedIssue importedIssue(String key) {
+		ImportedIssue issue = new ImportedIssue();
+		issue.setKey(key);
+		issue.setImportUrl("https://api.github.com/repos/rwinch/spring-security/import/issues/" + key);
+		return issue;
+	}
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pivotal.github;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.joda.time.DateTime;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import io.pivotal.github.MigrationJournal.Phase;
+
+/**
+ * @author Rob Winch
+ *
+ */
+public class MigrationJournalTests {
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	Path file;
+
+	@Before
+	public void setup() throws IOException {
+		file = temp.getRoot().toPath().resolve("journal.tsv");
+	}
+
+	@Test
+	public void resumesFromFile() throws IOException {
+		try (MigrationJournal journal = new MigrationJournal(file)) {
+			journal.imported("SEC-1", "https://api.github.com/repos/rwinch/test/import/issues/1");
+			journal.resolved("SEC-1", 10);
+			journal.completed("SEC-1", Phase.BACKPORTED);
+			journal.imported("SEC-2", "https://api.github.com/repos/rwinch/test/import/issues/2");
+		}
+
+		try (MigrationJournal journal = new MigrationJournal(file)) {
+			assertThat(journal.isEmpty()).isFalse();
+			MigrationJournal.Entry entry = journal.get("SEC-1");
+			assertThat(entry.getImportUrl()).isEqualTo("https://api.github.com/repos/rwinch/test/import/issues/1");
+			assertThat(entry.getIssueNumber()).isEqualTo(10);
+			assertThat(journal.isCompleted("SEC-1", Phase.BACKPORTED)).isTrue();
+			assertThat(journal.isCompleted("SEC-1", Phase.LINKED)).isFalse();
+			assertThat(journal.get("SEC-2").getIssueNumber()).isNull();
+			assertThat(journal.isCompleted("SEC-2", Phase.IMPORTED)).isTrue();
+			assertThat(journal.isCompleted("SEC-3", Phase.IMPORTED)).isFalse();
+		}
+	}
+
+	@Test
+	public void completedDoesNotMovePhaseBackwards() throws IOException {
+		try (MigrationJournal journal = new MigrationJournal(file)) {
+			journal.imported("SEC-1", "https://api.github.com/repos/rwinch/test/import/issues/1");
+			journal.completed("SEC-1", Phase.LINKED);
+			journal.completed("SEC-1", Phase.BACKPORTED);
+
+			assertThat(journal.get("SEC-1").getPhase()).isEqualTo(Phase.LINKED);
+		}
+	}
+
+	@Test
+	public void watermarkWhenSyncedThenLastOneWins() throws IOException {
+		DateTime migrated = DateTime.parse("2016-02-01T10:15:30.000Z");
+		DateTime synced = migrated.plusDays(1);
+		try (MigrationJournal journal = new MigrationJournal(file)) {
+			assertThat(journal.getWatermark()).isNull();
+			journal.imported("SEC-1", "https://api.github.com/repos/rwinch/test/import/issues/1");
+			journal.synced(migrated);
+			journal.synced(synced);
+		}
+
+		try (MigrationJournal journal = new MigrationJournal(file)) {
+			assertThat(journal.getWatermark().isEqual(synced)).isTrue();
+			assertThat(journal.get("SEC-1")).isNotNull();
+			assertThat(journal.get(MigrationJournal.SYNCED)).isNull();
+		}
+	}
+
+	@Test
+	public void backportsWhenResumedThenKept() throws IOException {
+		try (MigrationJournal journal = new MigrationJournal(file)) {
+			journal.imported("SEC-1", "https://api.github.com/repos/rwinch/test/import/issues/1");
+			journal.backported("SEC-1", "3.2.1", "https://api.github.com/repos/rwinch/test/import/issues/2", 10);
+			journal.resolved("SEC-1", 10);
+			journal.backported("SEC-1", "3.1.5", "https://api.github.com/repos/rwinch/test/import/issues/3", 10);
+		}
+		Files.write(file, "BACKPORT\tSEC-1\t3.0.9\thttps://api".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+		try (MigrationJournal journal = new MigrationJournal(file)) {
+			MigrationJournal.Entry entry = journal.get("SEC-1");
+			assertThat(entry.getIssueNumber()).isEqualTo(10);
+			assertThat(entry.getBackports()).containsOnlyKeys("3.2.1", "3.1.5");
+			assertThat(entry.getBackports().get("3.1.5"))
+				.isEqualTo(new MigrationJournal.Backport("https://api.github.com/repos/rwinch/test/import/issues/3", 10));
+		}
+	}
+
+	@Test
+	public void concurrentUpdatesOfEntryThenNoneLost() throws Exception {
+		try (MigrationJournal journal = new MigrationJournal(file)) {
+			List<String> keys = IntStream.range(0, 200).mapToObj(i -> "SEC-" + i).collect(Collectors.toList());
+			for(String key : keys) {
+				journal.imported(key, "https://api.github.com/repos/rwinch/test/import/issues/" + key);
+			}
+
+			ExecutorService executor = Executors.newFixedThreadPool(2);
+			try {
+				Future<?> resolved = executor.submit(() -> {
+					for(String key : keys) {
+						journal.resolved(key, 1);
+					}
+					return null;
+				});
+				Future<?> completed = executor.submit(() -> {
+					for(String key : keys) {
+						journal.completed(key, Phase.LINKED);
+					}
+					return null;
+				});
+				resolved.get();
+				completed.get();
+			} finally {
+				executor.shutdown();
+			}
+
+			for(String key : keys) {
+				assertThat(journal.get(key).getIssueNumber()).isEqualTo(1);
+				assertThat(journal.isCompleted(key, Phase.LINKED)).isTrue();
+			}
+		}
+	}
+
+	@Test
+	public void predictionsWhenResumedThenKept() throws IOException {
+		Map<String, Integer> linkedIssueNumbers = new LinkedHashMap<>();
+		linkedIssueNumbers.put("SEC-2", 11);
+		linkedIssueNumbers.put("SEC-3", 12);
+		try (MigrationJournal journal = new MigrationJournal(file)) {
+			journal.imported("SEC-1", "https://api.github.com/repos/rwinch/test/import/issues/1", 10, null, Collections.emptyList());
+			journal.linked("SEC-1", Collections.singletonMap("SEC-2", 1));
+			journal.linked("SEC-1", linkedIssueNumbers);
+			journal.resolved("SEC-1", 13);
+			journal.completed("SEC-1", Phase.VERIFIED);
+			journal.imported("SEC-2", "https://api.github.com/repos/rwinch/test/import/issues/2");
+		}
+
+		try (MigrationJournal journal = new MigrationJournal(file)) {
+			MigrationJournal.Entry entry = journal.get("SEC-1");
+			assertThat(entry.getPredictedIssueNumber()).isEqualTo(10);
+			assertThat(entry.getIssueNumber()).isEqualTo(13);
+			assertThat(entry.getLinkedIssueNumbers()).isEqualTo(linkedIssueNumbers);
+			assertThat(journal.isCompleted("SEC-1", Phase.LINKED)).isTrue();
+			assertThat(journal.get("SEC-2").getPredictedIssueNumber()).isNull();
+			assertThat(journal.get("SEC-2").getLinkedIssueNumbers()).isEmpty();
+		}
+	}
+
+	@Test
+	public void commentedUntilAndLabelsWhenResumedThenKept() throws IOException {
+		DateTime created = new DateTime(2016, 1, 1, 0, 0);
+		try (MigrationJournal journal = new MigrationJournal(file)) {
+			journal.imported("SEC-1", "https://api.github.com/repos/rwinch/test/import/issues/1", null, created,
+					Arrays.asList("type: bug", "status: waiting-for-triage"));
+			journal.completed("SEC-1", Phase.VERIFIED);
+			journal.commented("SEC-1", created.plusDays(2));
+			// an older comment does not move the mark back
+			journal.commented("SEC-1", created.plusDays(1));
+			journal.labeled("SEC-1", Arrays.asList("type: bug", "status,declined"));
+		}
+
+		try (MigrationJournal journal = new MigrationJournal(file)) {
+			MigrationJournal.Entry entry = journal.get("SEC-1");
+			assertThat(entry.getCommentedUntil().isEqual(created.plusDays(2))).isTrue();
+			assertThat(entry.getLabels()).containsExactly("type: bug", "status,declined");
+			assertThat(journal.isCompleted("SEC-1", Phase.VERIFIED)).isTrue();
+		}
+	}
+
+	@Test
+	public void invalidLineWhenReadThenFails() throws IOException {
+		try (MigrationJournal journal = new MigrationJournal(file)) {
+			journal.imported("SEC-1", "https://api.github.com/repos/rwinch/test/import/issues/1");
+		}
+		Files.write(file, "SEC-2\tBACKPORTED\thttps://api.github.com/repos/rwinch/test/import/issues/2\t10\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+		try {
+			new MigrationJournal(file).close();
+			fail("Expected IllegalStateException");
+		} catch(IllegalStateException expected) {
+			assertThat(expected.getMessage()).startsWith("Line 2 of the journal ");
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void backportBeforeEntryWhenReadThenFails() throws IOException {
+		Files.write(file, "BACKPORT\tSEC-1\t1.0\thttps://api.github.com/repos/rwinch/test/import/issues/2\t10\n".getBytes(StandardCharsets.UTF_8));
+
+		new MigrationJournal(file).close();
+	}
+
+	@Test
+	public void incompleteLineWhenAppendedThenNextLineKept() throws IOException {
+		try (MigrationJournal journal = new MigrationJournal(file)) {
+			journal.imported("SEC-1", "https://api.github.com/repos/rwinch/test/import/issues/1");
+		}
+		// cut off after a field, so only the missing line break tells it is incomplete
+		Files.write(file, "SEC-2\tIMPORTED\thttps://api.github.com/repos/rwinch/test/import/issues/2\t".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+		try (MigrationJournal journal = new MigrationJournal(file)) {
+			assertThat(journal.get("SEC-2")).isNull();
+			journal.imported("SEC-3", "https://api.github.com/repos/rwinch/test/import/issues/3");
+		}
+
+		try (MigrationJournal journal = new MigrationJournal(file)) {
+			assertThat(journal.get("SEC-1")).isNotNull();
+			assertThat(journal.get("SEC-2")).isNull();
+			assertThat(journal.get("SEC-3").getImportUrl()).isEqualTo("https://api.github.com/repos/rwinch/test/import/issues/3");
+		}
+	}
+
+	@Test
+	public void ignoresIncompleteLine() throws IOException {
+		try (MigrationJournal journal = new MigrationJournal(file)) {
+			journal.imported("SEC-1", "https://api.github.com/repos/rwinch/test/import/issues/1");
+		}
+		Files.write(file, "SEC-2\tIMPO".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+		try (MigrationJournal journal = new MigrationJournal(file)) {
+			assertThat(journal.get("SEC-1")).isNotNull();
+			assertThat(journal.get("SEC-2")).isNull();
+		}
+	}
+}
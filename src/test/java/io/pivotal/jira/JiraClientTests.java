@@ -0,0 +1,87 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pivotal.jira;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * @author Rob Winch
+ *
+ */
+public class JiraClientTests {
+	JiraClient client;
+
+	MockRestServiceServer jira;
+
+	@Before
+	public void setup() {
+		JiraConfig jiraConfig = new JiraConfig();
+		jiraConfig.setBaseUrl("https://jira.example.com");
+		jiraConfig.setProjectId("SEC");
+		RestTemplate rest = new RestTemplate();
+		client = new JiraClient();
+		client.setJiraConfig(jiraConfig);
+		client.setRest(rest);
+		jira = MockRestServiceServer.createServer(rest);
+	}
+
+	@Test
+	public void findIssuesWhenCommentsTruncatedThenRemainingPagesFetched() {
+		jira.expect(requestTo(containsString("/rest/api/2/search?")))
+			.andRespond(withSuccess("{\"startAt\":0,\"maxResults\":1000,\"total\":2,\"issues\":["
+					+ issue("SEC-1", comments(0, 2, "first", "second")) + ","
+					+ issue("SEC-2", comments(0, 5, "one", "two")) + "]}", MediaType.APPLICATION_JSON));
+		jira.expect(requestTo("https://jira.example.com/rest/api/2/issue/SEC-2/comment?startAt=2"))
+			.andRespond(withSuccess(comments(2, 5, "three", "four"), MediaType.APPLICATION_JSON));
+		jira.expect(requestTo("https://jira.example.com/rest/api/2/issue/SEC-2/comment?startAt=4"))
+			.andRespond(withSuccess(comments(4, 5, "five"), MediaType.APPLICATION_JSON));
+
+		List<JiraIssue> issues = client.findIssues("project = SEC");
+
+		jira.verify();
+		assertThat(bodies(issues.get(0))).containsExactly("first", "second");
+		assertThat(bodies(issues.get(1))).containsExactly("one", "two", "three", "four", "five");
+		assertThat(issues.get(1).getFields().getComment().isComplete()).isTrue();
+	}
+
+	private static List<String> bodies(JiraIssue issue) {
+		return issue.getFields().getComment().getComments().stream().map(JiraComment::getBody).collect(Collectors.toList());
+	}
+
+	private static String issue(String key, String comments) {
+		return "{\"key\":\"" + key + "\",\"fields\":{\"summary\":\"" + key + "\",\"comment\":" + comments + "}}";
+	}
+
+	private static String comments(int startAt, int total, String... bodies) {
+		StringBuilder comments = new StringBuilder();
+		for(String body : bodies) {
+			comments.append(comments.length() == 0 ? "" : ",").append("{\"body\":\"").append(body).append("\"}");
+		}
+		return "{\"startAt\":" + startAt + ",\"maxResults\":" + bodies.length + ",\"total\":" + total + ",\"comments\":[" + comments + "]}";
+	}
+}
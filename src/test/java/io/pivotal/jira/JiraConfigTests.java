@@ -0,0 +1,51 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pivotal.jira;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.joda.time.DateTime;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Rob Winch
+ *
+ */
+public class JiraConfigTests {
+	JiraConfig config;
+
+	@Before
+	public void setup() {
+		config = new JiraConfig();
+		config.setProjectId("SEC");
+	}
+
+	@Test
+	public void getMigrateJqlWhenUpdatedSinceThenRestrictedBeforeOrderBy() {
+		DateTime updatedSince = DateTime.now().minusMinutes(90).minusSeconds(30);
+
+		assertThat(config.getMigrateJql(updatedSince)).isEqualTo("(project = SEC) AND updated >= -91m ORDER BY key ASC");
+	}
+
+	@Test
+	public void getMigrateJqlWhenUpdatedSinceAndNoOrderByThenRestricted() {
+		config.setMigrateJql("id=SEC-1");
+		DateTime updatedSince = DateTime.now().minusSeconds(10);
+
+		assertThat(config.getMigrateJql(updatedSince)).isEqualTo("(id=SEC-1) AND updated >= -1m");
+	}
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pivotal.jira;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+
+import org.junit.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * @author Rob Winch
+ *
+ */
+public class JiraInterningModuleTests {
+	JiraInterningModule interning = new JiraInterningModule();
+
+	ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().modulesToInstall(interning).build();
+
+	@Test
+	public void readValueWhenEqualThenSameInstance() throws IOException {
+		JiraIssue first = mapper.readValue(issue("SEC-1", "rwinch", "Closed"), JiraIssue.class);
+		JiraIssue second = mapper.readValue(issue("SEC-2", "rwinch", "Closed"), JiraIssue.class);
+
+		assertThat(second.getFields().getReporter()).isSameAs(first.getFields().getReporter());
+		assertThat(second.getFields().getComment().getComments().get(0).getAuthor()).isSameAs(first.getFields().getReporter());
+		assertThat(second.getFields().getStatus()).isSameAs(first.getFields().getStatus());
+		assertThat(second.getFields().getFixVersions().get(0)).isSameAs(first.getFields().getFixVersions().get(0));
+		assertThat(second.getFields().getIssuelinks().get(0).getType()).isSameAs(first.getFields().getIssuelinks().get(0).getType());
+		assertThat(second.getFields().getComment()).isNotSameAs(first.getFields().getComment());
+	}
+
+	@Test
+	public void readValueWhenDifferentThenNotShared() throws IOException {
+		JiraIssue first = mapper.readValue(issue("SEC-1", "rwinch", "Closed"), JiraIssue.class);
+		JiraIssue second = mapper.readValue(issue("SEC-2", "jgrandja", "Open"), JiraIssue.class);
+
+		assertThat(second.getFields().getReporter()).isNotEqualTo(first.getFields().getReporter());
+		assertThat(second.getFields().getReporter().getKey()).isEqualTo("jgrandja");
+		assertThat(second.getFields().getStatus().getName()).isEqualTo("Open");
+		assertThat(interning.size()).isEqualTo(6);
+	}
+
+	@Test
+	public void readValueWhenSameLinkedIssueThenNotInterned() throws IOException {
+		JiraIssue first = mapper.readValue(issue("SEC-1", "rwinch", "Closed"), JiraIssue.class);
+		JiraIssue second = mapper.readValue(issue("SEC-2", "rwinch", "Closed"), JiraIssue.class);
+
+		IssueLink.RelatedIssue linked = first.getFields().getIssuelinks().get(0).getOutwardIssue();
+		assertThat(second.getFields().getIssuelinks().get(0).getOutwardIssue()).isEqualTo(linked).isNotSameAs(linked);
+	}
+
+	private static String issue(String key, String user, String status) {
+		String jiraUser = "{\"key\":\"" + user + "\",\"displayName\":\"" + user + "\",\"self\":\"https://jira.spring.io/rest/api/2/user?username=" + user + "\"}";
+		return "{\"key\":\"" + key + "\",\"fields\":{"
+				+ "\"reporter\":" + jiraUser + ","
+				+ "\"status\":{\"name\":\"" + status + "\"},"
+				+ "\"fixVersions\":[{\"name\":\"4.0.1\"}],"
+				+ "\"issuelinks\":[{\"type\":{\"name\":\"Relate\",\"inward\":\"relates to\",\"outward\":\"relates to\"},\"outwardIssue\":{\"key\":\"SEC-3\"}}],"
+				+ "\"comment\":{\"total\":1,\"comments\":[{\"author\":" + jiraUser + ",\"body\":\"Thanks\"}]}}}";
+	}
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pivotal.jira;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+/**
+ * @author Rob Winch
+ *
+ */
+public class JiraSearchPagerTests {
+
+	@Test
+	public void streamsAllPagesInOrder() {
+		JiraSearchPager pager = new JiraSearchPager(startAt -> page(startAt, 3, 8), 1, 1);
+
+		assertThat(pager.getTotal()).isEqualTo(8);
+		assertThat(pager.stream().map(JiraIssue::getKey).collect(Collectors.toList()))
+			.containsExactly("SEC-0", "SEC-1", "SEC-2", "SEC-3", "SEC-4", "SEC-5", "SEC-6", "SEC-7");
+	}
+
+	@Test
+	public void concurrentPagesAreStreamedInOrder() {
+		JiraSearchPager pager = new JiraSearchPager(startAt -> {
+			sleep(startAt == 3 ? 100 : 0);
+			return page(startAt, 3, 10);
+		}, 3, 3);
+
+		assertThat(pager.stream().map(JiraIssue::getKey).collect(Collectors.toList()))
+			.containsExactly("SEC-0", "SEC-1", "SEC-2", "SEC-3", "SEC-4", "SEC-5", "SEC-6", "SEC-7", "SEC-8", "SEC-9");
+	}
+
+	@Test
+	public void fetchesAtMostMaxPagesInFlightPlusTwo() {
+		AtomicInteger fetched = new AtomicInteger();
+		try (JiraSearchPager pager = new JiraSearchPager(startAt -> {
+			fetched.incrementAndGet();
+			return page(startAt, 3, 30);
+		}, 1, 1)) {
+			// consume the first page, then stall
+			assertThat(pager.next().getKey()).isEqualTo("SEC-0");
+			sleep(200);
+
+			assertThat(fetched.get()).isEqualTo(3);
+		}
+	}
+
+	@Test
+	public void noResults() {
+		JiraSearchPager pager = new JiraSearchPager(startAt -> page(startAt, 3, 0), 1, 1);
+
+		assertThat(pager.getTotal()).isEqualTo(0);
+		assertThat(pager.hasNext()).isFalse();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void searchFailureIsRethrown() {
+		JiraSearchPager pager = new JiraSearchPager(startAt -> {
+			if(startAt > 0) {
+				throw new IllegalStateException("Failed");
+			}
+			return page(startAt, 3, 8);
+		}, 1, 1);
+
+		pager.stream().collect(Collectors.toList());
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	static JiraSearchResult page(long startAt, long maxResults, long total) {
+		List<JiraIssue> issues = new ArrayList<>();
+		for(long i = startAt; i < Math.min(startAt + maxResults, total); i++) {
+			JiraIssue issue = new JiraIssue();
+			issue.setKey("SEC-" + i);
+			issues.add(issue);
+		}
+		JiraSearchResult result = new JiraSearchResult();
+		result.setIssues(issues);
+		result.setStartAt(startAt);
+		result.setMaxResults(maxResults);
+		result.setTotal(total);
+		return result;
+	}
+}
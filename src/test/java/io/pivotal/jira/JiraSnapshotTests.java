@@ -0,0 +1,104 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pivotal.jira;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.joda.time.DateTime;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * @author Rob Winch
+ *
+ */
+public class JiraSnapshotTests {
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	Path file;
+
+	JiraProject project;
+
+	@Before
+	public void setup() throws IOException {
+		file = temp.getRoot().toPath().resolve("snapshot.ndjson.gz");
+		JiraComponent component = new JiraComponent();
+		component.setName("Core");
+		project = new JiraProject();
+		project.setComponents(Arrays.asList(component));
+	}
+
+	@Test
+	public void replaysExportedIssues() throws IOException {
+		long total = JiraSnapshot.PAGE_SIZE * 2 + 5;
+		List<JiraIssue> exported;
+		try (JiraSearchPager issues = new JiraSearchPager(startAt -> issues(startAt, 300, total), 2, 2)) {
+			JiraSnapshot.write(file, "project = SEC", project, issues);
+		}
+		try (JiraSearchPager issues = new JiraSearchPager(startAt -> issues(startAt, 300, total), 2, 2)) {
+			exported = issues.stream().collect(Collectors.toList());
+		}
+
+		try (JiraSnapshot snapshot = new JiraSnapshot(file)) {
+			assertThat(snapshot.getJql()).isEqualTo("project = SEC");
+			assertThat(snapshot.getProject()).isEqualTo(project);
+
+			for(int replay = 0; replay < 2; replay++) {
+				JiraSearchPager replayed = new JiraSearchPager(snapshot::search, 1, 1);
+				assertThat(replayed.getTotal()).isEqualTo(total);
+				assertThat(replayed.stream().collect(Collectors.toList())).isEqualTo(exported);
+			}
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void pagesMustBeReplayedInOrder() throws IOException {
+		try (JiraSearchPager issues = new JiraSearchPager(startAt -> issues(startAt, 300, 10), 1, 1)) {
+			JiraSnapshot.write(file, "project = SEC", project, issues);
+		}
+
+		try (JiraSnapshot snapshot = new JiraSnapshot(file)) {
+			snapshot.search(0);
+			snapshot.search(JiraSnapshot.PAGE_SIZE * 2);
+		}
+	}
+
+	private static JiraSearchResult issues(long startAt, long maxResults, long total) {
+		JiraSearchResult page = JiraSearchPagerTests.page(startAt, maxResults, total);
+		for(JiraIssue issue : page.getIssues()) {
+			JiraUser reporter = new JiraUser();
+			reporter.setKey("rwinch");
+			reporter.setSelf("https://jira.spring.io/rest/api/2/user?username=rwinch");
+			JiraIssue.Fields fields = new JiraIssue.Fields();
+			fields.setSummary("Summary of " + issue.getKey());
+			fields.setDescription("{code}\nline 1\nline 2\n{code}");
+			fields.setCreated(DateTime.parse("2015-06-02T10:15:30.123Z"));
+			fields.setReporter(reporter);
+			issue.setSelf("https://jira.spring.io/rest/api/2/issue/" + issue.getKey());
+			issue.setFields(fields);
+		}
+		return page;
+	}
+}
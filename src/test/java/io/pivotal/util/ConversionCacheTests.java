@@ -0,0 +1,95 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pivotal.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+
+import org.junit.Test;
+
+/**
+ * @author Rob Winch
+ *
+ */
+public class ConversionCacheTests {
+	AtomicInteger conversions = new AtomicInteger();
+
+	UnaryOperator<String> upperCase = text -> {
+		conversions.incrementAndGet();
+		return text.toUpperCase();
+	};
+
+	@Test
+	public void convertWhenSameTextThenConvertedOnce() {
+		ConversionCache cache = new ConversionCache(1024);
+
+		assertThat(cache.convert("markdown", "same", upperCase)).isEqualTo("SAME");
+		assertThat(cache.convert("markdown", "same", upperCase)).isEqualTo("SAME");
+
+		assertThat(conversions.get()).isEqualTo(1);
+		assertThat(cache.getHits()).isEqualTo(1);
+		assertThat(cache.getMisses()).isEqualTo(1);
+	}
+
+	@Test
+	public void convertWhenOtherEngineThenConvertedAgain() {
+		ConversionCache cache = new ConversionCache(1024);
+
+		cache.convert("markdown", "same", upperCase);
+		assertThat(cache.convert("textile", "same", String::toLowerCase)).isEqualTo("same");
+
+		assertThat(cache.getHits()).isEqualTo(0);
+		assertThat(cache.getCount()).isEqualTo(2);
+	}
+
+	@Test
+	public void convertWhenFullThenLeastRecentlyUsedEvicted() {
+		ConversionCache cache = new ConversionCache(3 * (ConversionCache.ENTRY_OVERHEAD + 1));
+		cache.convert("markdown", "a", upperCase);
+		cache.convert("markdown", "b", upperCase);
+		cache.convert("markdown", "c", upperCase);
+		cache.convert("markdown", "a", upperCase);
+
+		cache.convert("markdown", "d", upperCase);
+
+		assertThat(cache.getCount()).isEqualTo(3);
+		assertThat(cache.getSize()).isEqualTo(3 * (ConversionCache.ENTRY_OVERHEAD + 1));
+		cache.convert("markdown", "a", upperCase);
+		cache.convert("markdown", "b", upperCase);
+		assertThat(conversions.get()).isEqualTo(5);
+	}
+
+	@Test
+	public void convertWhenLargerThanCacheThenNotCached() {
+		ConversionCache cache = new ConversionCache(ConversionCache.ENTRY_OVERHEAD + 1);
+
+		cache.convert("markdown", "ab", upperCase);
+
+		assertThat(cache.getCount()).isEqualTo(0);
+	}
+
+	@Test
+	public void convertWhenDisabledThenNotCached() {
+		ConversionCache cache = new ConversionCache(0);
+
+		cache.convert("markdown", "same", upperCase);
+		cache.convert("markdown", "same", upperCase);
+
+		assertThat(conversions.get()).isEqualTo(2);
+	}
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pivotal.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.URI;
+
+import org.junit.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+
+/**
+ * @author Rob Winch
+ *
+ */
+public class MigrationMetricsTests {
+
+	@Test
+	public void requestNameWhenGithubRepositoryThenRelativeToRepository() {
+		assertThat(MigrationMetrics.requestName(request("https://api.github.com/repos/spring-projects/spring-security/import/issues/1234")))
+			.isEqualTo("import.issues.n");
+		assertThat(MigrationMetrics.requestName(request("https://github.example.com/api/v3/repos/rwinch/test/milestones?page=2")))
+			.isEqualTo("milestones");
+		assertThat(MigrationMetrics.requestName(request("https://api.github.com/repos/rwinch/test")))
+			.isEqualTo("root");
+	}
+
+	@Test
+	public void requestNameWhenJiraThenRelativeToApi() {
+		assertThat(MigrationMetrics.requestName(request("https://jira.spring.io/rest/api/2/search?jql=project%3DSEC")))
+			.isEqualTo("search");
+		assertThat(MigrationMetrics.requestName(request("https://jira.spring.io/rest/api/2/issue/SEC-1/comment")))
+			.isEqualTo("issue.n.comment");
+	}
+
+	@Test
+	public void requestNameWhenNotRepositoryThenWholePath() {
+		assertThat(MigrationMetrics.requestName(request("https://api.github.com/user/repos")))
+			.isEqualTo("user.repos");
+	}
+
+	private static ClientHttpRequest request(String uri) {
+		return new MockClientHttpRequest(HttpMethod.GET, URI.create(uri));
+	}
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pivotal.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+/**
+ * @author Rob Winch
+ *
+ */
+public class ProgressTests {
+	AtomicLong now = new AtomicLong(1000000);
+
+	@Test
+	public void formatWhenThroughputChangesThenEtaUsesRecentThroughput() {
+		Progress progress = new Progress("Migrated", 1000, () -> "GitHub rate limit 10 remaining", now::get);
+
+		progress.completed(100);
+		now.addAndGet(10000);
+		assertThat(progress.format()).isEqualTo("Migrated 100 of 1000 (10%) in 10s, 10.0/s (10.0/s recently), ETA 1m30s; GitHub rate limit 10 remaining");
+
+		progress.completed(100);
+		now.addAndGet(20000);
+		assertThat(progress.format()).isEqualTo("Migrated 200 of 1000 (20%) in 30s, 6.7/s (5.0/s recently), ETA 2m40s; GitHub rate limit 10 remaining");
+	}
+
+	@Test
+	public void formatWhenDoneThenNoEta() {
+		Progress progress = new Progress("Linked", 5, null, now::get);
+		progress.completed(5);
+		now.addAndGet(2000);
+
+		assertThat(progress.format()).isEqualTo("Linked 5 of 5 (100%) in 2s, 2.5/s (2.5/s recently)");
+	}
+
+	@Test
+	public void formatWhenTotalUnknownThenNoEta() {
+		Progress progress = new Progress("Migrated", -1, null, now::get);
+		progress.completed(3);
+		now.addAndGet(1000);
+
+		assertThat(progress.format()).isEqualTo("Migrated 3 in 1s, 3.0/s (3.0/s recently)");
+	}
+
+	@Test
+	public void duration() {
+		assertThat(Progress.duration(59999)).isEqualTo("59s");
+		assertThat(Progress.duration(61000)).isEqualTo("1m01s");
+		assertThat(Progress.duration(3723000)).isEqualTo("1h02m03s");
+	}
+}